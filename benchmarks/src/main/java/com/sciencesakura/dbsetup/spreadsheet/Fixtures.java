@@ -0,0 +1,178 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Generates the Excel files for the benchmarks.
+ *
+ * <p>Every worksheet has the header row {@code c0, c1, ..., c9} and the data rows. The column {@code c0} holds
+ * the row number, and the other columns hold the values of the shape. The {@code sparse} worksheet is wider,
+ * and has {@link #SPARSE_COLUMNS} columns.</p>
+ */
+final class Fixtures {
+
+  static final int COLUMNS = 10;
+
+  static final int SHEETS = 100;
+
+  static final int SPARSE_COLUMNS = 250;
+
+  private Fixtures() {
+  }
+
+  /**
+   * Writes a new Excel file to a temporary file.
+   *
+   * @param shape the shape of the values: {@code plain}, {@code formulas}, {@code dates}, {@code sheets}
+   *              or {@code sparse}
+   * @param cells the approximate number of the cells
+   * @return the path to the Excel file
+   */
+  static Path generate(String shape, int cells) throws IOException {
+    var path = Files.createTempFile("dbsetup-spreadsheet-" + shape + "-" + cells + "-", ".xlsx");
+    try (var out = Files.newOutputStream(path)) {
+      switch (shape) {
+        case "plain":
+          plain(out, cells / COLUMNS);
+          break;
+        case "formulas":
+          formulas(out, cells / COLUMNS);
+          break;
+        case "dates":
+          dates(out, cells / COLUMNS);
+          break;
+        case "sheets":
+          sheets(out, Math.max(1, cells / COLUMNS / SHEETS));
+          break;
+        case "sparse":
+          sparse(out, cells / SPARSE_COLUMNS);
+          break;
+        default:
+          throw new IllegalArgumentException("unknown shape: " + shape);
+      }
+    }
+    return path;
+  }
+
+  private static void plain(OutputStream out, int rows) throws IOException {
+    try (var workbook = new SXSSFWorkbook()) {
+      plain(workbook.createSheet("bench"), rows);
+      workbook.write(out);
+      workbook.dispose();
+    }
+  }
+
+  private static void plain(Sheet sheet, int rows) {
+    header(sheet);
+    for (var r = 1; r <= rows; r++) {
+      var row = sheet.createRow(r);
+      row.createCell(0).setCellValue(r);
+      for (var c = 1; c < COLUMNS; c++) {
+        if (c % 2 == 0) {
+          row.createCell(c).setCellValue(r * c + 0.5);
+        } else {
+          row.createCell(c).setCellValue("text-" + r + "-" + c);
+        }
+      }
+    }
+  }
+
+  private static void formulas(OutputStream out, int rows) throws IOException {
+    // the cached results are needed by the streaming mode, so the formulas are evaluated before writing
+    try (var workbook = new XSSFWorkbook()) {
+      var sheet = workbook.createSheet("bench");
+      header(sheet);
+      for (var r = 1; r <= rows; r++) {
+        var row = sheet.createRow(r);
+        row.createCell(0).setCellValue(r);
+        for (var c = 1; c < COLUMNS; c++) {
+          row.createCell(c).setCellFormula("A" + (r + 1) + "*" + c);
+        }
+      }
+      XSSFFormulaEvaluator.evaluateAllFormulaCells(workbook);
+      workbook.write(out);
+    }
+  }
+
+  private static void dates(OutputStream out, int rows) throws IOException {
+    try (var workbook = new SXSSFWorkbook()) {
+      var style = dateStyle(workbook);
+      var sheet = workbook.createSheet("bench");
+      header(sheet);
+      // 2001-01-01T00:00:00Z
+      var base = 978307200000L;
+      for (var r = 1; r <= rows; r++) {
+        var row = sheet.createRow(r);
+        row.createCell(0).setCellValue(r);
+        for (var c = 1; c < COLUMNS; c++) {
+          var cell = row.createCell(c);
+          cell.setCellValue(new Date(base + (r * COLUMNS + c) * 60_000L));
+          cell.setCellStyle(style);
+        }
+      }
+      workbook.write(out);
+      workbook.dispose();
+    }
+  }
+
+  private static void sheets(OutputStream out, int rows) throws IOException {
+    try (var workbook = new SXSSFWorkbook()) {
+      for (var i = 0; i < SHEETS; i++) {
+        plain(workbook.createSheet("bench_" + i), rows);
+      }
+      workbook.write(out);
+      workbook.dispose();
+    }
+  }
+
+  /**
+   * Writes the wide and sparse worksheet. Each data row has the row number and two more values among
+   * the {@link #SPARSE_COLUMNS} columns, and every other run of 100 rows is blank.
+   */
+  private static void sparse(OutputStream out, int rows) throws IOException {
+    try (var workbook = new SXSSFWorkbook()) {
+      var sheet = workbook.createSheet("bench");
+      header(sheet, SPARSE_COLUMNS);
+      for (var r = 1; r <= rows; r++) {
+        var row = sheet.createRow(r);
+        if (r / 100 % 2 == 1) {
+          continue;
+        }
+        row.createCell(0).setCellValue(r);
+        row.createCell(1 + r % (SPARSE_COLUMNS - 1)).setCellValue(r + 0.5);
+        row.createCell(1 + r * 7 % (SPARSE_COLUMNS - 1)).setCellValue("text-" + r);
+      }
+      workbook.write(out);
+      workbook.dispose();
+    }
+  }
+
+  private static void header(Sheet sheet) {
+    header(sheet, COLUMNS);
+  }
+
+  private static void header(Sheet sheet, int columns) {
+    var row = sheet.createRow(0);
+    for (var c = 0; c < columns; c++) {
+      row.createCell(c).setCellValue("c" + c);
+    }
+  }
+
+  private static CellStyle dateStyle(Workbook workbook) {
+    var style = workbook.createCellStyle();
+    style.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm:ss"));
+    return style;
+  }
+}
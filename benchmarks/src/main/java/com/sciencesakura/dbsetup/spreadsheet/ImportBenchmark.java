@@ -0,0 +1,91 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import static com.ninja_squad.dbsetup.Operations.sequenceOf;
+import static com.ninja_squad.dbsetup.Operations.sql;
+import static com.ninja_squad.dbsetup.Operations.truncate;
+
+import com.ninja_squad.dbsetup.DbSetup;
+import com.ninja_squad.dbsetup.destination.Destination;
+import com.ninja_squad.dbsetup.destination.DriverManagerDestination;
+import com.ninja_squad.dbsetup.operation.Operation;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code Import.execute} against an in-memory H2 database.
+ *
+ * <p>The Excel file is parsed once in the setup, so that this benchmark measures the insert throughput.
+ * Every invocation truncates the table before the import.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+
+  @Param({"1000", "10000"})
+  int rows;
+
+  @Param({"0", "1000"})
+  int batchSize;
+
+  Path path;
+
+  Destination destination;
+
+  Operation operation;
+
+  /**
+   * Generates the Excel file, creates the table and builds the operation.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    path = Fixtures.generate("plain", rows * Fixtures.COLUMNS);
+    destination = new DriverManagerDestination("jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1", "sa", null);
+    new DbSetup(destination, sql("create table if not exists bench ("
+        + "c0 integer primary key,"
+        + "c1 varchar(100), c2 double precision, c3 varchar(100), c4 double precision, c5 varchar(100),"
+        + "c6 double precision, c7 varchar(100), c8 double precision, c9 varchar(100)"
+        + ")")).launch();
+    var builder = new Import.Builder(path.toUri().toURL());
+    if (batchSize != 0) {
+      builder.batchSize(batchSize);
+    }
+    operation = sequenceOf(truncate("bench"), builder.build());
+  }
+
+  /**
+   * Drops the table and deletes the Excel file.
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    new DbSetup(destination, sql("drop table bench")).launch();
+    Files.deleteIfExists(path);
+  }
+
+  /**
+   * Truncates the table and imports the Excel file.
+   */
+  @Benchmark
+  public void execute() {
+    new DbSetup(destination, operation).launch();
+  }
+}
@@ -0,0 +1,78 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.operation.Operation;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@code OperationBuilder.build}: reading the Excel file and building the insert operations.
+ *
+ * <p>The {@code shape} parameter selects the generated workbook: {@code plain} values, {@code formulas},
+ * date-formatted cells ({@code dates}), {@link Fixtures#SHEETS} worksheets ({@code sheets}) or
+ * a wide worksheet of mostly blank cells and blank rows ({@code sparse}).</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  int cells;
+
+  @Param({"plain", "formulas", "dates", "sheets", "sparse"})
+  String shape;
+
+  @Param({"default", "streaming"})
+  String mode;
+
+  Path path;
+
+  Import.Builder builder;
+
+  /**
+   * Generates the Excel file.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    path = Fixtures.generate(shape, cells);
+    builder = new Import.Builder(path.toUri().toURL());
+    if ("streaming".equals(mode)) {
+      builder.streaming();
+    }
+  }
+
+  /**
+   * Deletes the Excel file.
+   */
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(path);
+  }
+
+  /**
+   * Reads the Excel file and builds the operation.
+   */
+  @Benchmark
+  public Operation build() {
+    return OperationBuilder.build(builder);
+  }
+}
@@ -0,0 +1,221 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.bind.Binder;
+import com.ninja_squad.dbsetup.bind.BinderConfiguration;
+import com.ninja_squad.dbsetup.bind.DefaultBinderConfiguration;
+import com.ninja_squad.dbsetup.generator.ValueGenerator;
+import com.ninja_squad.dbsetup.operation.Operation;
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An operation which inserts the rows of a worksheet with JDBC batch execution.
+ *
+ * <p>This operation behaves like {@link com.ninja_squad.dbsetup.operation.Insert}: the values are bound by
+ * the binders of the {@link BinderConfiguration}, and the values of the generated columns are generated
+ * when the operation is created. The difference is that the rows are sent to the database with
+ * {@link PreparedStatement#addBatch()} and {@link PreparedStatement#executeBatch()} every {@code batchSize} rows
+ * instead of one round trip per row.</p>
+ *
+ * <p>With the {@link DefaultBinderConfiguration}, the values of the typed columns of {@link ColumnData} are bound
+ * with the typed setters such as {@link PreparedStatement#setLong(int, long)} without boxing them,
+ * if the SQL types of the parameters are known and compatible. The other values are bound by the binders.</p>
+ *
+ * <p>If the conversion by the column metadata is enabled, the values of the worksheet columns are bound by the
+ * {@link ColumnConverters.Converter} resolved from the SQL types of the table columns instead.</p>
+ *
+ * <p>If a {@link BulkLoader} is given, all the rows are handed to the loader instead of the batch execution.
+ * The rows inserted partially by {@link #execute(Connection, BinderConfiguration, BitSet)} are always sent
+ * with the batch execution.</p>
+ */
+final class BatchInsert implements Operation, BulkLoader.Rows {
+
+  private static final int NOT_BINDABLE = Integer.MIN_VALUE;
+
+  private final String table;
+
+  private final String[] columns;
+
+  private final SheetData sheet;
+
+  private final Object[][] generatedValues;
+
+  private final int batchSize;
+
+  private final boolean convert;
+
+  private final @Nullable BulkLoader loader;
+
+  BatchInsert(String table, SheetData sheet, Map<String, ValueGenerator<?>> valueGenerators, int batchSize,
+              boolean convert, @Nullable BulkLoader loader) {
+    this.table = table;
+    this.sheet = sheet;
+    this.batchSize = batchSize;
+    this.convert = convert;
+    this.loader = loader;
+    this.columns = Arrays.copyOf(sheet.columns, sheet.columns.length + valueGenerators.size());
+    this.generatedValues = new Object[valueGenerators.size()][];
+    var rowCount = sheet.rowCount;
+    var i = 0;
+    for (var entry : valueGenerators.entrySet()) {
+      var column = entry.getKey();
+      for (var c : sheet.columns) {
+        if (c.equals(column)) {
+          throw new IllegalArgumentException("column " + column + " is already listed in the list of column names");
+        }
+      }
+      var generator = entry.getValue();
+      var values = new Object[rowCount];
+      for (var r = 0; r < rowCount; r++) {
+        values[r] = generator.nextValue();
+      }
+      columns[sheet.columns.length + i] = column;
+      generatedValues[i++] = values;
+    }
+  }
+
+  @Override
+  public void execute(Connection connection, BinderConfiguration configuration) throws SQLException {
+    execute(connection, configuration, null);
+  }
+
+  /**
+   * Inserts the given rows.
+   *
+   * @param rows the indices of the rows to insert, or {@code null} to insert all the rows
+   */
+  void execute(Connection connection, BinderConfiguration configuration, @Nullable BitSet rows) throws SQLException {
+    if (rows == null && loader != null) {
+      loader.load(connection, configuration, table, columns.clone(), this);
+      return;
+    }
+    try (var stmt = connection.prepareStatement(sql())) {
+      var metadata = metadata(stmt);
+      var binders = binders(metadata, configuration, columns.length);
+      var sqlTypes = sqlTypes(metadata, configuration);
+      var converters = convert ? ColumnConverters.of(connection, table, sheet) : null;
+      var width = sheet.columns.length;
+      var pending = 0;
+      for (var r = 0; r < sheet.rowCount; r++) {
+        if (rows != null && !rows.get(r)) {
+          continue;
+        }
+        for (var c = 0; c < width; c++) {
+          var converter = converters == null ? null : converters[c];
+          var sqlType = sqlTypes[c];
+          if (converter != null) {
+            converter.bind(stmt, c + 1, sheet.data[c], r);
+          } else if (sqlType == NOT_BINDABLE) {
+            binders[c].bind(stmt, c + 1, sheet.value(r, c));
+          } else {
+            sheet.data[c].bind(stmt, c + 1, r, sqlType);
+          }
+        }
+        for (var g = 0; g < generatedValues.length; g++) {
+          binders[width + g].bind(stmt, width + g + 1, generatedValues[g][r]);
+        }
+        stmt.addBatch();
+        if (++pending == batchSize) {
+          stmt.executeBatch();
+          pending = 0;
+        }
+      }
+      if (pending != 0) {
+        stmt.executeBatch();
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return sheet.rowCount;
+  }
+
+  @Override
+  public @Nullable Object get(int row, int column) {
+    var width = sheet.columns.length;
+    return column < width ? sheet.value(row, column) : generatedValues[column - width][row];
+  }
+
+  private String sql() {
+    var sql = new StringBuilder("insert into ").append(table).append(" (");
+    for (var i = 0; i < columns.length; i++) {
+      if (i != 0) {
+        sql.append(", ");
+      }
+      sql.append(columns[i]);
+    }
+    sql.append(") values (");
+    for (var i = 0; i < columns.length; i++) {
+      if (i != 0) {
+        sql.append(", ");
+      }
+      sql.append('?');
+    }
+    return sql.append(')').toString();
+  }
+
+  @Nullable
+  static ParameterMetaData metadata(PreparedStatement stmt) {
+    try {
+      return stmt.getParameterMetaData();
+    } catch (SQLException e) {
+      return null;
+    }
+  }
+
+  static Binder[] binders(@Nullable ParameterMetaData metadata, BinderConfiguration configuration, int count)
+      throws SQLException {
+    var binders = new Binder[count];
+    for (var i = 0; i < count; i++) {
+      var binder = configuration.getBinder(metadata, i + 1);
+      if (binder == null) {
+        throw new IllegalStateException("null binder returned from configuration " + configuration.getClass());
+      }
+      binders[i] = binder;
+    }
+    return binders;
+  }
+
+  /**
+   * Returns the SQL types of the parameters to which the values of the worksheet columns are bound directly,
+   * or {@link #NOT_BINDABLE} for the columns which are bound by the binders.
+   */
+  private int[] sqlTypes(@Nullable ParameterMetaData metadata, BinderConfiguration configuration) {
+    var sqlTypes = new int[sheet.columns.length];
+    Arrays.fill(sqlTypes, NOT_BINDABLE);
+    // the custom binders may convert the values differently
+    if (metadata == null || configuration != DefaultBinderConfiguration.INSTANCE) {
+      return sqlTypes;
+    }
+    for (var c = 0; c < sqlTypes.length; c++) {
+      try {
+        var sqlType = metadata.getParameterType(c + 1);
+        if (sheet.data[c].bindable(sqlType)) {
+          sqlTypes[c] = sqlType;
+        }
+      } catch (SQLException e) {
+        // the type is unknown, so the binder is used
+      }
+    }
+    return sqlTypes;
+  }
+
+  @Override
+  public String toString() {
+    if (loader != null) {
+      return "bulk insert into " + table + " [columns=" + Arrays.toString(columns) + ", rows=" + sheet.rowCount
+          + ", loader=" + loader + ']';
+    }
+    return "batch insert into " + table + " [columns=" + Arrays.toString(columns) + ", rows=" + sheet.rowCount
+        + ", batchSize=" + batchSize + ']';
+  }
+}
@@ -0,0 +1,96 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.bind.BinderConfiguration;
+import java.sql.Connection;
+import java.sql.SQLException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A loader which inserts the rows of a worksheet into a table in place of the {@code Insert} operation of DbSetup.
+ *
+ * <p>The loader is given with {@link Import.Builder#loader(BulkLoader)}, and is called once per table
+ * with the connection the {@code Import} operation is executed with. The following loaders are provided:</p>
+ * <ul>
+ *   <li>{@link #multiRowInsert(int)}: the {@code INSERT ... VALUES (...), (...)} statements,
+ *       which most databases support</li>
+ *   <li>{@link #postgresCopy()}: the {@code COPY ... FROM STDIN} command of PostgreSQL</li>
+ * </ul>
+ *
+ * <p>The loader is a part of the {@link Import#fingerprint() fingerprint} by its class and {@code toString()},
+ * so a loader with settings should include them in {@code toString()}.</p>
+ *
+ * @author sciencesakura
+ */
+public interface BulkLoader {
+
+  /**
+   * Returns a loader which inserts the given number of rows with a single {@code INSERT} statement.
+   * The values are bound by the binders of the {@link BinderConfiguration}.
+   *
+   * @param rowsPerStatement the number of the rows in a statement, must be positive
+   * @return the loader
+   * @throws IllegalArgumentException if the argument is less than or equal to {@code 0}
+   */
+  static BulkLoader multiRowInsert(int rowsPerStatement) {
+    if (rowsPerStatement <= 0) {
+      throw new IllegalArgumentException("rowsPerStatement must be greater than 0");
+    }
+    return new MultiRowInsertLoader(rowsPerStatement);
+  }
+
+  /**
+   * Returns a loader which streams the rows in the CSV format to the {@code COPY ... FROM STDIN} command
+   * with the {@code CopyManager} of the PostgreSQL JDBC driver.
+   * The rows are converted into the CSV text while they are sent, and no intermediate file is written.
+   *
+   * <p>The binders of the {@link BinderConfiguration} are not used. The numbers are written in the shortest
+   * form, such as {@code 1000} for the integers, the dates are written as the local date-times, and the other
+   * values are written as their {@code toString()}. The PostgreSQL JDBC driver is required at runtime.</p>
+   *
+   * @return the loader
+   */
+  static BulkLoader postgresCopy() {
+    return new PostgresCopyLoader();
+  }
+
+  /**
+   * Inserts the given rows into the table.
+   *
+   * @param connection    the connection the {@code Import} operation is executed with
+   * @param configuration the binder configuration the {@code Import} operation is executed with
+   * @param table         the table name
+   * @param columns       the column names, followed by the columns of the value generators
+   * @param rows          the rows to insert
+   * @throws SQLException if a database access error occurs
+   */
+  void load(Connection connection, BinderConfiguration configuration, String table, String[] columns, Rows rows)
+      throws SQLException;
+
+  /**
+   * The rows to insert, which are read column by column in each row.
+   *
+   * @author sciencesakura
+   */
+  interface Rows {
+
+    /**
+     * Returns the number of the rows.
+     *
+     * @return the number of the rows
+     */
+    int size();
+
+    /**
+     * Returns the value at the given row and column.
+     * The numbers are {@code Double} and the dates are {@code java.util.Date} as they are read from the cells.
+     *
+     * @param row    the 0-based row index
+     * @param column the 0-based column index
+     * @return the value, or {@code null} if the cell is blank
+     */
+    @Nullable
+    Object get(int row, int column);
+  }
+}
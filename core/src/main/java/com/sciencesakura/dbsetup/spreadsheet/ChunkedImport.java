@@ -0,0 +1,160 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import com.ninja_squad.dbsetup.bind.BinderConfiguration;
+import com.ninja_squad.dbsetup.operation.Operation;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An operation which reads the worksheets and inserts their rows chunk by chunk.
+ *
+ * <p>The worksheets are read on a background thread, which hands the chunks of {@link Import.Builder#chunkSize}
+ * rows to the thread executing this operation through a bounded queue. The executing thread inserts each chunk
+ * with {@link BatchInsert} while the next chunk is read, and the reading thread waits while the queue is full,
+ * so that at most a few chunks are held in memory at the same time.</p>
+ *
+ * <p>If the reading fails, its exception is thrown by this operation after the chunks read before the failure
+ * are inserted. If the inserting fails, the reading thread is interrupted and the exception is thrown.</p>
+ */
+final class ChunkedImport implements Operation {
+
+  /**
+   * The number of the chunks read ahead of the chunk being inserted.
+   */
+  private static final int READ_AHEAD = 2;
+
+  private static final Object END = new Object();
+
+  private final Import.Builder builder;
+
+  ChunkedImport(Import.Builder builder) {
+    this.builder = builder;
+  }
+
+  @Override
+  public void execute(Connection connection, BinderConfiguration configuration) throws SQLException {
+    var queue = new ArrayBlockingQueue<Object>(READ_AHEAD);
+    var cancelled = new AtomicBoolean();
+    var reader = new Thread(() -> read(queue, cancelled), "dbsetup-spreadsheet-reader");
+    reader.setDaemon(true);
+    reader.start();
+    try {
+      insert(queue, connection, configuration);
+    } finally {
+      cancelled.set(true);
+      reader.interrupt();
+      try {
+        reader.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void read(BlockingQueue<Object> queue, AtomicBoolean cancelled) {
+    Object last = END;
+    try {
+      OperationBuilder.parse(builder, chunk -> put(queue, chunk, cancelled));
+    } catch (RuntimeException | Error e) {
+      if (cancelled.get()) {
+        return;
+      }
+      last = e;
+    }
+    try {
+      put(queue, last, cancelled);
+    } catch (Cancelled e) {
+      // the inserting has ended, and no one waits for the last element
+    }
+  }
+
+  /**
+   * Puts the given element into the queue, waiting while the queue is full unless the inserting has ended.
+   */
+  private static void put(BlockingQueue<Object> queue, Object element, AtomicBoolean cancelled) {
+    while (!cancelled.get()) {
+      try {
+        if (queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+          return;
+        }
+      } catch (InterruptedException e) {
+        // the flag is checked again
+      }
+    }
+    throw new Cancelled();
+  }
+
+  private void insert(BlockingQueue<Object> queue, Connection connection, BinderConfiguration configuration)
+      throws SQLException {
+    var batchSize = builder.batchSize == 0 ? builder.chunkSize : builder.batchSize;
+    var listener = builder.listener;
+    @Nullable String table = null;
+    var rows = 0;
+    var nanos = 0L;
+    while (true) {
+      var next = take(queue);
+      if (next == END) {
+        break;
+      }
+      if (next instanceof RuntimeException) {
+        throw (RuntimeException) next;
+      }
+      if (next instanceof Error) {
+        throw (Error) next;
+      }
+      var chunk = (SheetData) next;
+      var tableName = builder.resolver.apply(chunk.name);
+      if (tableName == null) {
+        throw new DbSetupRuntimeException("could not resolve table name: " + chunk.name);
+      }
+      if (listener != null && table != null && !table.equals(tableName)) {
+        listener.tableInserted(table, rows, nanos);
+        rows = 0;
+        nanos = 0L;
+      }
+      table = tableName;
+      var start = System.nanoTime();
+      new BatchInsert(tableName, chunk, OperationBuilder.valueGenerators(builder, tableName), batchSize,
+          builder.convertWithMetadata, builder.loader).execute(connection, configuration);
+      rows += chunk.rowCount;
+      nanos += System.nanoTime() - start;
+    }
+    if (listener != null && table != null) {
+      listener.tableInserted(table, rows, nanos);
+    }
+  }
+
+  private static Object take(BlockingQueue<Object> queue) {
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DbSetupRuntimeException("interrupted while reading worksheets", e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "chunked import from " + builder.location + " [chunkSize=" + builder.chunkSize + ']';
+  }
+
+  /**
+   * Thrown in the reading thread to stop reading when the inserting has failed.
+   */
+  private static final class Cancelled extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    Cancelled() {
+      super(null, null, false, false);
+    }
+  }
+}
@@ -0,0 +1,207 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Resolves the converters of the worksheet columns from the SQL types read with
+ * {@link DatabaseMetaData#getColumns} and the {@link ColumnType} of the parsed values.
+ *
+ * <p>The converter is resolved once per column, so that the values are bound from the primitive arrays of
+ * {@link ColumnData} without boxing or examining their types:
+ * {@code long} for the integer columns, {@link BigDecimal} for the decimal columns,
+ * {@link LocalDate}, {@link LocalTime} and {@link LocalDateTime} for the date and time columns,
+ * and {@link String} for the character columns. The numbers and the booleans are written to the character columns
+ * in the same way as the binders of DbSetup, such as {@code 1000.0} for the number {@code 1000}.
+ * The columns of the other combinations, such as the {@link ColumnType#OBJECT} columns of the mixed values,
+ * have no converter and are bound by the binders of DbSetup.</p>
+ *
+ * <p>The SQL types are cached per JDBC URL and table, so that the metadata is read only once
+ * even if the same tables are imported many times.</p>
+ */
+final class ColumnConverters {
+
+  private static final Map<String, Map<String, Map<String, Integer>>> cache = new ConcurrentHashMap<>();
+
+  private ColumnConverters() {
+  }
+
+  /**
+   * Returns the converters of the columns of the given worksheet.
+   *
+   * @param connection the connection to read the metadata
+   * @param table      the table name
+   * @param sheet      the worksheet
+   * @return the converters in the same order as the columns of {@code sheet};
+   *     {@code null} for the columns whose SQL types are unknown or have no converter
+   */
+  static @Nullable Converter[] of(Connection connection, String table, SheetData sheet) throws SQLException {
+    var metadata = connection.getMetaData();
+    var url = metadata.getURL();
+    Map<String, Map<String, Integer>> tables = url == null
+        ? new ConcurrentHashMap<>()
+        : cache.computeIfAbsent(url, k -> new ConcurrentHashMap<>());
+    var types = types(metadata, tables, ForeignKeys.name(metadata, table));
+    var zone = ZoneId.systemDefault();
+    var columns = sheet.columns;
+    var converters = new Converter[columns.length];
+    for (var c = 0; c < columns.length; c++) {
+      var type = types.get(ForeignKeys.identifier(metadata, columns[c]));
+      converters[c] = type == null ? null : converter(type, sheet.data[c].type, zone);
+    }
+    return converters;
+  }
+
+  private static Map<String, Integer> types(DatabaseMetaData metadata, Map<String, Map<String, Integer>> cache,
+                                            @Nullable String[] name) throws SQLException {
+    var key = name[0] + "." + name[1];
+    var types = cache.get(key);
+    if (types != null) {
+      return types;
+    }
+    types = new HashMap<>();
+    try (var rs = metadata.getColumns(null, name[0], name[1], null)) {
+      while (rs.next()) {
+        // the first one is used if the tables of several schemas match
+        types.putIfAbsent(rs.getString("COLUMN_NAME"), rs.getInt("DATA_TYPE"));
+      }
+    }
+    cache.put(key, types);
+    return types;
+  }
+
+  private static @Nullable Converter converter(int sqlType, ColumnType type, ZoneId zone) {
+    switch (sqlType) {
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+        if (type == ColumnType.LONG) {
+          return new Converter(sqlType, (stmt, index, column, row) -> stmt.setLong(index, column.longValue(row)));
+        }
+        if (type == ColumnType.DOUBLE) {
+          return new Converter(sqlType, (stmt, index, column, row) -> {
+            var d = column.doubleValue(row);
+            if (ColumnData.isLong(d)) {
+              stmt.setLong(index, (long) d);
+            } else {
+              stmt.setDouble(index, d);
+            }
+          });
+        }
+        return null;
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+        if (type == ColumnType.LONG) {
+          return new Converter(sqlType, (stmt, index, column, row) -> stmt.setBigDecimal(index,
+              BigDecimal.valueOf(column.longValue(row))));
+        }
+        if (type == ColumnType.DOUBLE) {
+          // the shortest decimal representation, such as 0.1 instead of 0.1000000000000000055511151231257827
+          return new Converter(sqlType, (stmt, index, column, row) -> stmt.setBigDecimal(index,
+              BigDecimal.valueOf(column.doubleValue(row))));
+        }
+        return null;
+      case Types.REAL:
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        if (type == ColumnType.LONG || type == ColumnType.DOUBLE) {
+          return new Converter(sqlType, (stmt, index, column, row) -> stmt.setDouble(index, column.doubleValue(row)));
+        }
+        return null;
+      case Types.BOOLEAN:
+      case Types.BIT:
+        if (type == ColumnType.BOOLEAN) {
+          return new Converter(sqlType, (stmt, index, column, row) -> stmt.setBoolean(index,
+              column.booleanValue(row)));
+        }
+        return null;
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+        if (type == ColumnType.STRING) {
+          return new Converter(sqlType, (stmt, index, column, row) -> stmt.setString(index, column.stringValue(row)));
+        }
+        if (type == ColumnType.LONG || type == ColumnType.DOUBLE) {
+          // the same as the string binder of DbSetup, which is given the Double read from the cell
+          return new Converter(sqlType, (stmt, index, column, row) -> stmt.setString(index,
+              Double.toString(column.doubleValue(row))));
+        }
+        if (type == ColumnType.BOOLEAN) {
+          return new Converter(sqlType, (stmt, index, column, row) -> stmt.setString(index,
+              Boolean.toString(column.booleanValue(row))));
+        }
+        return null;
+      case Types.DATE:
+        if (type == ColumnType.DATE) {
+          return new Converter(sqlType, (stmt, index, column, row) -> stmt.setObject(index,
+              LocalDate.ofInstant(Instant.ofEpochMilli(column.timeValue(row)), zone)));
+        }
+        return null;
+      case Types.TIME:
+        if (type == ColumnType.DATE) {
+          return new Converter(sqlType, (stmt, index, column, row) -> stmt.setObject(index,
+              LocalTime.ofInstant(Instant.ofEpochMilli(column.timeValue(row)), zone)));
+        }
+        return null;
+      case Types.TIMESTAMP:
+        if (type == ColumnType.DATE) {
+          return new Converter(sqlType, (stmt, index, column, row) -> stmt.setObject(index,
+              LocalDateTime.ofInstant(Instant.ofEpochMilli(column.timeValue(row)), zone)));
+        }
+        return null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Binds the values of a column converted into the type of the column.
+   */
+  static final class Converter {
+
+    private final int sqlType;
+
+    private final Setter setter;
+
+    private Converter(int sqlType, Setter setter) {
+      this.sqlType = sqlType;
+      this.setter = setter;
+    }
+
+    void bind(PreparedStatement stmt, int index, ColumnData column, int row) throws SQLException {
+      if (column.isNull(row)) {
+        stmt.setNull(index, sqlType);
+      } else {
+        setter.set(stmt, index, column, row);
+      }
+    }
+  }
+
+  /**
+   * Binds the non-blank value at a row read from the primitive array of the column.
+   */
+  @FunctionalInterface
+  private interface Setter {
+
+    void set(PreparedStatement stmt, int index, ColumnData column, int row) throws SQLException;
+  }
+}
@@ -0,0 +1,577 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The values of a worksheet column stored in a primitive array of its {@link ColumnType}.
+ *
+ * <p>The blank cells are recorded in a bitmap, so that the primitive arrays do not need the boxed objects.
+ * The values are boxed only when they are given to DbSetup, and the boxed values are the same as the values read
+ * from the cells: the numbers are always {@link Double} and the dates are always {@link Date}.</p>
+ *
+ * <p>Instances are shared by {@link WorkbookCache} between several imports, so they must not be modified
+ * once {@link #trim()} is called.</p>
+ */
+abstract class ColumnData {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * The largest magnitude below which every integral {@code double} is exactly representable.
+   */
+  private static final double MAX_EXACT_INTEGER = 0x1p53;
+
+  final ColumnType type;
+
+  private final BitSet nulls = new BitSet();
+
+  int size;
+
+  ColumnData(ColumnType type) {
+    this.type = type;
+  }
+
+  /**
+   * Creates an empty column of the given type.
+   */
+  static ColumnData of(ColumnType type) {
+    switch (type) {
+      case LONG:
+        return new LongColumn();
+      case DOUBLE:
+        return new DoubleColumn();
+      case BOOLEAN:
+        return new BooleanColumn();
+      case STRING:
+        return new StringColumn();
+      case DATE:
+        return new DateColumn();
+      default:
+        return new ObjectColumn();
+    }
+  }
+
+  /**
+   * Returns the narrowest type which can store the given value.
+   */
+  static ColumnType typeOf(Object value) {
+    if (value instanceof Double) {
+      return isLong((Double) value) ? ColumnType.LONG : ColumnType.DOUBLE;
+    } else if (value instanceof String) {
+      return ColumnType.STRING;
+    } else if (value instanceof Boolean) {
+      return ColumnType.BOOLEAN;
+    } else if (value instanceof Date) {
+      return ColumnType.DATE;
+    }
+    return ColumnType.OBJECT;
+  }
+
+  /**
+   * Returns a new column which holds the values of the given column and the given value appended.
+   * The {@code LONG} column is widened to {@code DOUBLE} if possible, otherwise to {@code OBJECT}.
+   */
+  static ColumnData promote(ColumnData column, Object value) {
+    var type = column.type == ColumnType.LONG && value instanceof Double ? ColumnType.DOUBLE : ColumnType.OBJECT;
+    var promoted = of(type);
+    promoted.ensureCapacity(column.size + 1);
+    for (var r = 0; r < column.size; r++) {
+      promoted.add(column.get(r));
+    }
+    promoted.add(value);
+    return promoted;
+  }
+
+  /**
+   * Returns {@code true} if the given number is an integer which a {@code long} holds exactly.
+   */
+  static boolean isLong(double value) {
+    // -0.0 is excluded because it would be read back as 0.0
+    return Math.rint(value) == value && Math.abs(value) < MAX_EXACT_INTEGER
+        && Double.doubleToRawLongBits(value) != Long.MIN_VALUE;
+  }
+
+  /**
+   * Appends the given value.
+   *
+   * @return {@code false} if the value cannot be stored in this column
+   */
+  final boolean add(@Nullable Object value) {
+    if (value == null) {
+      pad(size + 1);
+      return true;
+    }
+    if (!accepts(value)) {
+      return false;
+    }
+    ensureCapacity(size + 1);
+    set(size++, value);
+    return true;
+  }
+
+  /**
+   * Appends the blank cells until the size of this column becomes the given size.
+   */
+  final void pad(int size) {
+    if (this.size < size) {
+      ensureCapacity(size);
+      nulls.set(this.size, size);
+      this.size = size;
+    }
+  }
+
+  /**
+   * Returns the boxed value at the given row, or {@code null} if the cell is blank.
+   */
+  @Nullable
+  final Object get(int row) {
+    return nulls.get(row) ? null : boxed(row);
+  }
+
+  /**
+   * Returns {@code true} if the cell at the given row is blank.
+   */
+  final boolean isNull(int row) {
+    return nulls.get(row);
+  }
+
+  /**
+   * Returns the non-blank value at the given row as a {@code long}.
+   * The typed accessors unbox the value by default, and are overridden by the columns of the primitive arrays.
+   */
+  long longValue(int row) {
+    return (long) doubleValue(row);
+  }
+
+  double doubleValue(int row) {
+    return (Double) boxed(row);
+  }
+
+  boolean booleanValue(int row) {
+    return (Boolean) boxed(row);
+  }
+
+  String stringValue(int row) {
+    return (String) boxed(row);
+  }
+
+  /**
+   * Returns the non-blank date at the given row as the milliseconds since the epoch.
+   */
+  long timeValue(int row) {
+    return ((Date) boxed(row)).getTime();
+  }
+
+  /**
+   * Binds the value at the given row with the typed setter of the statement.
+   * This must be called only if {@link #bindable(int)} returns {@code true} for the given SQL type.
+   */
+  final void bind(PreparedStatement stmt, int index, int row, int sqlType) throws SQLException {
+    if (nulls.get(row)) {
+      stmt.setNull(index, sqlType);
+    } else {
+      set(stmt, index, row, sqlType);
+    }
+  }
+
+  /**
+   * Shrinks the arrays to the size of this column.
+   */
+  abstract void trim();
+
+  /**
+   * Returns {@code true} if the values of this column can be bound to the parameter of the given SQL type
+   * without the binders of DbSetup.
+   */
+  abstract boolean bindable(int sqlType);
+
+  abstract boolean accepts(Object value);
+
+  abstract void ensureCapacity(int capacity);
+
+  abstract void set(int row, Object value);
+
+  abstract Object boxed(int row);
+
+  /**
+   * Binds the non-blank value at the given row. The boxed value is bound with {@link PreparedStatement#setObject}
+   * unless the column has its typed setter, so that the driver converts the value of the mixed column.
+   */
+  void set(PreparedStatement stmt, int index, int row, int sqlType) throws SQLException {
+    stmt.setObject(index, boxed(row), sqlType);
+  }
+
+  static int grow(int length, int capacity) {
+    return Math.max(capacity, Math.max(INITIAL_CAPACITY, length * 2));
+  }
+
+  static boolean isNumeric(int sqlType) {
+    switch (sqlType) {
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+      case Types.REAL:
+      case Types.FLOAT:
+      case Types.DOUBLE:
+      case Types.DECIMAL:
+      case Types.NUMERIC:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static final class LongColumn extends ColumnData {
+
+    private long[] values = new long[0];
+
+    LongColumn() {
+      super(ColumnType.LONG);
+    }
+
+    @Override
+    void trim() {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    boolean bindable(int sqlType) {
+      return isNumeric(sqlType);
+    }
+
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof Double && isLong((Double) value);
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      if (values.length < capacity) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    void set(int row, Object value) {
+      values[row] = (long) (double) (Double) value;
+    }
+
+    @Override
+    Object boxed(int row) {
+      return (double) values[row];
+    }
+
+    @Override
+    long longValue(int row) {
+      return values[row];
+    }
+
+    @Override
+    double doubleValue(int row) {
+      return values[row];
+    }
+
+    @Override
+    void set(PreparedStatement stmt, int index, int row, int sqlType) throws SQLException {
+      stmt.setLong(index, values[row]);
+    }
+  }
+
+  private static final class DoubleColumn extends ColumnData {
+
+    private double[] values = new double[0];
+
+    DoubleColumn() {
+      super(ColumnType.DOUBLE);
+    }
+
+    @Override
+    void trim() {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    boolean bindable(int sqlType) {
+      return isNumeric(sqlType);
+    }
+
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof Double;
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      if (values.length < capacity) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    void set(int row, Object value) {
+      values[row] = (Double) value;
+    }
+
+    @Override
+    Object boxed(int row) {
+      return values[row];
+    }
+
+    @Override
+    double doubleValue(int row) {
+      return values[row];
+    }
+
+    @Override
+    void set(PreparedStatement stmt, int index, int row, int sqlType) throws SQLException {
+      stmt.setDouble(index, values[row]);
+    }
+  }
+
+  private static final class BooleanColumn extends ColumnData {
+
+    private boolean[] values = new boolean[0];
+
+    BooleanColumn() {
+      super(ColumnType.BOOLEAN);
+    }
+
+    @Override
+    void trim() {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    boolean bindable(int sqlType) {
+      return sqlType == Types.BOOLEAN || sqlType == Types.BIT;
+    }
+
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof Boolean;
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      if (values.length < capacity) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    void set(int row, Object value) {
+      values[row] = (Boolean) value;
+    }
+
+    @Override
+    Object boxed(int row) {
+      return values[row];
+    }
+
+    @Override
+    boolean booleanValue(int row) {
+      return values[row];
+    }
+
+    @Override
+    void set(PreparedStatement stmt, int index, int row, int sqlType) throws SQLException {
+      stmt.setBoolean(index, values[row]);
+    }
+  }
+
+  private static final class StringColumn extends ColumnData {
+
+    private int[] indices = new int[0];
+
+    private final ArrayList<String> pool = new ArrayList<>();
+
+    private @Nullable Map<String, Integer> poolIndex = new HashMap<>();
+
+    StringColumn() {
+      super(ColumnType.STRING);
+    }
+
+    @Override
+    void trim() {
+      indices = Arrays.copyOf(indices, size);
+      pool.trimToSize();
+      // the strings are not added any more
+      poolIndex = null;
+    }
+
+    @Override
+    boolean bindable(int sqlType) {
+      switch (sqlType) {
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.LONGVARCHAR:
+        case Types.NCHAR:
+        case Types.NVARCHAR:
+        case Types.LONGNVARCHAR:
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof String;
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      if (indices.length < capacity) {
+        indices = Arrays.copyOf(indices, grow(indices.length, capacity));
+      }
+    }
+
+    @Override
+    void set(int row, Object value) {
+      var poolIndex = this.poolIndex;
+      if (poolIndex == null) {
+        throw new IllegalStateException("already trimmed");
+      }
+      indices[row] = poolIndex.computeIfAbsent((String) value, s -> {
+        pool.add(s);
+        return pool.size() - 1;
+      });
+    }
+
+    @Override
+    Object boxed(int row) {
+      return pool.get(indices[row]);
+    }
+
+    @Override
+    String stringValue(int row) {
+      return pool.get(indices[row]);
+    }
+
+    @Override
+    void set(PreparedStatement stmt, int index, int row, int sqlType) throws SQLException {
+      stmt.setString(index, pool.get(indices[row]));
+    }
+  }
+
+  private static final class DateColumn extends ColumnData {
+
+    private long[] values = new long[0];
+
+    DateColumn() {
+      super(ColumnType.DATE);
+    }
+
+    @Override
+    void trim() {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    boolean bindable(int sqlType) {
+      return sqlType == Types.TIMESTAMP || sqlType == Types.DATE || sqlType == Types.TIME;
+    }
+
+    @Override
+    boolean accepts(Object value) {
+      return value instanceof Date;
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      if (values.length < capacity) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    void set(int row, Object value) {
+      values[row] = ((Date) value).getTime();
+    }
+
+    @Override
+    Object boxed(int row) {
+      return new Date(values[row]);
+    }
+
+    @Override
+    long timeValue(int row) {
+      return values[row];
+    }
+
+    @Override
+    void set(PreparedStatement stmt, int index, int row, int sqlType) throws SQLException {
+      // the same conversions as the date binders of DbSetup
+      switch (sqlType) {
+        case Types.DATE:
+          stmt.setDate(index, new java.sql.Date(values[row]));
+          break;
+        case Types.TIME:
+          stmt.setTime(index, new Time(values[row]));
+          break;
+        default:
+          stmt.setTimestamp(index, new Timestamp(values[row]));
+          break;
+      }
+    }
+  }
+
+  private static final class ObjectColumn extends ColumnData {
+
+    private @Nullable Object[] values = new Object[0];
+
+    ObjectColumn() {
+      super(ColumnType.OBJECT);
+    }
+
+    @Override
+    void trim() {
+      values = Arrays.copyOf(values, size);
+    }
+
+    @Override
+    boolean bindable(int sqlType) {
+      return false;
+    }
+
+    @Override
+    boolean accepts(Object value) {
+      return true;
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      if (values.length < capacity) {
+        values = Arrays.copyOf(values, grow(values.length, capacity));
+      }
+    }
+
+    @Override
+    void set(int row, Object value) {
+      values[row] = value;
+    }
+
+    @Override
+    Object boxed(int row) {
+      var value = values[row];
+      if (value == null) {
+        throw new IllegalStateException("blank cell: " + row);
+      }
+      return value;
+    }
+  }
+}
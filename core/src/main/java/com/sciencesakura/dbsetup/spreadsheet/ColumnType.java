@@ -0,0 +1,46 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+/**
+ * The types of the columns which determine how the values of a worksheet column are stored.
+ *
+ * <p>The values of a column are stored in a primitive array of its type instead of the boxed objects,
+ * and are bound with the typed setters of {@link java.sql.PreparedStatement} in the JDBC batch execution.
+ * The values given to DbSetup are the same regardless of the type.</p>
+ *
+ * @author sciencesakura
+ * @see Import.Builder#withColumnType(String, String, ColumnType)
+ */
+public enum ColumnType {
+
+  /**
+   * The numeric cells holding integers whose absolute values are less than 2<sup>53</sup>.
+   */
+  LONG,
+
+  /**
+   * The numeric cells.
+   */
+  DOUBLE,
+
+  /**
+   * The boolean cells.
+   */
+  BOOLEAN,
+
+  /**
+   * The string cells. The equal strings in a column are stored only once.
+   */
+  STRING,
+
+  /**
+   * The date-formatted numeric cells.
+   */
+  DATE,
+
+  /**
+   * The cells of any type. The values are stored as they are.
+   */
+  OBJECT
+}
@@ -0,0 +1,66 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.model.Styles;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The date-ness of the cell styles of a workbook, resolved once per style index.
+ *
+ * <p>{@link DateUtil#isCellDateFormatted(Cell)} looks up the number format of the cell and parses its format
+ * string for every numeric cell. The workbooks have only a few styles shared by many cells,
+ * so the date-ness is resolved for every style when the workbook is opened, and the numeric cells look it up
+ * by the style index. The table is not modified after it is created, so it is shared by the threads reading
+ * the worksheets in parallel.</p>
+ */
+final class DateStyles {
+
+  private final boolean[] dates;
+
+  private DateStyles(boolean[] dates) {
+    this.dates = dates;
+  }
+
+  static DateStyles of(Workbook workbook) {
+    var dates = new boolean[workbook.getNumCellStyles()];
+    for (var i = 0; i < dates.length; i++) {
+      dates[i] = isDate(workbook.getCellStyleAt(i));
+    }
+    return new DateStyles(dates);
+  }
+
+  static DateStyles of(@Nullable Styles styles) {
+    if (styles == null) {
+      return new DateStyles(new boolean[0]);
+    }
+    var dates = new boolean[styles.getNumCellStyles()];
+    for (var i = 0; i < dates.length; i++) {
+      dates[i] = isDate(styles.getStyleAt(i));
+    }
+    return new DateStyles(dates);
+  }
+
+  /**
+   * Returns {@code true} if the numeric value of the cell with the given style is a date.
+   * This is the same as {@link DateUtil#isCellDateFormatted(Cell)}.
+   *
+   * @param style the index of the cell style
+   * @param value the numeric value of the cell
+   */
+  boolean isDate(int style, double value) {
+    return style < dates.length && dates[style] && DateUtil.isValidExcelDate(value);
+  }
+
+  boolean isDate(Cell cell) {
+    return isDate(cell.getCellStyle().getIndex() & 0xffff, cell.getNumericCellValue());
+  }
+
+  private static boolean isDate(@Nullable CellStyle style) {
+    return style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString());
+  }
+}
@@ -0,0 +1,285 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Reads the CSV (RFC 4180) or TSV file as a worksheet named after the file.
+ *
+ * <p>The file is read through a {@link ReadableByteChannel} into a fixed-size byte buffer, decoded into a fixed-size
+ * char buffer, and tokenized in place, so that the memory used for reading does not depend on the size of the file.
+ * Every record is given to {@link SheetParser} as soon as it is tokenized. The values are strings: the empty
+ * fields are {@code null}, and the quoted empty fields of CSV are empty strings. TSV has no quoting, and the fields
+ * are taken as they are. The blank lines are skipped, and are not counted as the rows for the margins.</p>
+ */
+final class DelimitedReader implements SpreadsheetSource, SpreadsheetSource.Cursor, SheetRow {
+
+  private static final int BUFFER_SIZE = 65536;
+
+  private final URL location;
+
+  private final ReadableByteChannel channel;
+
+  private final CharsetDecoder decoder;
+
+  private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+  private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+  private final char delimiter;
+
+  private final boolean quoted;
+
+  private final StringBuilder field = new StringBuilder(64);
+
+  private @Nullable String[] fields = new String[16];
+
+  private int count;
+
+  private int index = -1;
+
+  private boolean eof;
+
+  private boolean flushed;
+
+  private boolean iterated;
+
+  private DelimitedReader(URL location, ReadableByteChannel channel, CharsetDecoder decoder, char delimiter,
+                          boolean quoted) {
+    this.location = location;
+    this.channel = channel;
+    this.decoder = decoder;
+    this.delimiter = delimiter;
+    this.quoted = quoted;
+    chars.flip();
+  }
+
+  static SpreadsheetSource open(Import.Builder builder, LongAdder bytes) throws IOException {
+    var decoder = builder.charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT);
+    var tsv = builder.format == SourceFormat.TSV;
+    return new DelimitedReader(builder.location, open(builder.location, bytes), decoder, tsv ? '\t' : ',', !tsv);
+  }
+
+  @Override
+  @Nullable
+  public Sheet next() {
+    if (iterated) {
+      return null;
+    }
+    iterated = true;
+    var sheetName = sheetName(location);
+    return new Sheet() {
+
+      @Override
+      public String name() {
+        return sheetName;
+      }
+
+      @Override
+      public Cursor open() {
+        return DelimitedReader.this;
+      }
+    };
+  }
+
+  @Override
+  public boolean concurrent() {
+    return false;
+  }
+
+  @Override
+  public void read(Predicate<SheetRow> action) throws IOException {
+    try {
+      skipByteOrderMark();
+      while (nextRecord()) {
+        if (!action.test(this)) {
+          break;
+        }
+      }
+    } catch (CharacterCodingException e) {
+      throw new DbSetupRuntimeException("invalid " + decoder.charset() + " sequence: " + location, e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Returns the file name without the extension, which is the worksheet name of the file.
+   */
+  static String sheetName(URL location) {
+    var path = location.getPath();
+    var name = URLDecoder.decode(path.substring(path.lastIndexOf('/') + 1), StandardCharsets.UTF_8);
+    var dot = name.lastIndexOf('.');
+    return dot <= 0 ? name : name.substring(0, dot);
+  }
+
+  private static ReadableByteChannel open(URL location, LongAdder bytes) throws IOException {
+    if ("file".equals(location.getProtocol())) {
+      try {
+        var channel = FileChannel.open(Path.of(location.toURI()), StandardOpenOption.READ);
+        bytes.add(channel.size());
+        return channel;
+      } catch (URISyntaxException e) {
+        throw new IOException(e);
+      }
+    }
+    return Channels.newChannel(new OperationBuilder.CountingInputStream(location.openStream(), bytes));
+  }
+
+  @Override
+  public int index() {
+    return index;
+  }
+
+  @Override
+  public int lastCellNum() {
+    return count;
+  }
+
+  @Override
+  @Nullable
+  public Object value(int column) {
+    return column < count ? fields[column] : null;
+  }
+
+  @Override
+  public int nextColumn(int column) {
+    for (var c = column; c < count; c++) {
+      if (fields[c] != null) {
+        return c;
+      }
+    }
+    return count;
+  }
+
+  private void skipByteOrderMark() throws IOException {
+    if (peek() == '\uFEFF') {
+      chars.get();
+    }
+  }
+
+  /**
+   * Tokenizes the next record, skipping the blank lines.
+   *
+   * @return {@code false} if the end of the file has been reached
+   */
+  private boolean nextRecord() throws IOException {
+    Arrays.fill(fields, 0, count, null);
+    count = 0;
+    var c = read();
+    while (c == '\n' || c == '\r') {
+      c = read();
+    }
+    if (c == -1) {
+      return false;
+    }
+    index++;
+    while (true) {
+      field.setLength(0);
+      var quotedField = false;
+      if (quoted && c == '"') {
+        quotedField = true;
+        c = readQuoted();
+      }
+      while (c != -1 && c != delimiter && c != '\n' && c != '\r') {
+        field.append((char) c);
+        c = read();
+      }
+      add(quotedField || field.length() != 0 ? field.toString() : null);
+      if (c != delimiter) {
+        return true;
+      }
+      c = read();
+    }
+  }
+
+  /**
+   * Reads the quoted part of the field after the opening quote, and returns the character after the closing quote.
+   */
+  private int readQuoted() throws IOException {
+    while (true) {
+      var c = read();
+      if (c == -1) {
+        return c;
+      }
+      if (c == '"') {
+        c = read();
+        if (c != '"') {
+          return c;
+        }
+      }
+      field.append((char) c);
+    }
+  }
+
+  private void add(@Nullable String value) {
+    if (count == fields.length) {
+      fields = Arrays.copyOf(fields, count * 2);
+    }
+    fields[count++] = value;
+  }
+
+  private int read() throws IOException {
+    if (!chars.hasRemaining() && !fill()) {
+      return -1;
+    }
+    return chars.get();
+  }
+
+  private int peek() throws IOException {
+    if (!chars.hasRemaining() && !fill()) {
+      return -1;
+    }
+    return chars.get(chars.position());
+  }
+
+  private boolean fill() throws IOException {
+    if (flushed) {
+      return false;
+    }
+    chars.clear();
+    while (chars.position() == 0) {
+      if (!eof && channel.read(bytes) == -1) {
+        eof = true;
+      }
+      bytes.flip();
+      var result = decoder.decode(bytes, chars, eof);
+      if (result.isError()) {
+        result.throwException();
+      }
+      bytes.compact();
+      if (eof) {
+        decoder.flush(chars);
+        flushed = true;
+        break;
+      }
+    }
+    chars.flip();
+    return chars.hasRemaining();
+  }
+}
@@ -0,0 +1,64 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A process-wide index of the rows inserted by the incremental imports.
+ *
+ * <p>The index is used by the {@code Import} operations built with {@link Import.Builder#incremental(String, String)}.
+ * It holds the digest of every row per JDBC URL and table, keyed by the value of the key column,
+ * as of the last execution which completed without an error. The next execution compares the rows of the worksheet
+ * with the index, and executes only the statements needed for the rows which were added, changed or removed.</p>
+ *
+ * <p>The index is verified against the number of the rows of the table before it is used, so that the next execution
+ * deletes all the rows and inserts the worksheet again if the transaction of the import is rolled back or the rows
+ * are inserted or deleted by others. The index cannot detect the changes which keep the number of the rows,
+ * such as the rolled back updates or the rows updated by others, so call {@link #clear()} in those cases.</p>
+ *
+ * @author sciencesakura
+ */
+public final class DeltaIndex {
+
+  private static final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private DeltaIndex() {
+  }
+
+  /**
+   * Removes all the indices.
+   */
+  public static void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Removes and returns the index of the given table, so that it is not used if the execution fails.
+   */
+  static @Nullable Entry remove(String url, String table) {
+    return entries.remove(url + '\n' + table);
+  }
+
+  static void put(String url, String table, Entry entry) {
+    entries.put(url + '\n' + table, entry);
+  }
+
+  /**
+   * The columns of a table and the digests of its rows keyed by the value of the key column.
+   */
+  static final class Entry {
+
+    final List<String> columns;
+
+    final Map<Object, Long> digests;
+
+    Entry(List<String> columns, Map<Object, Long> digests) {
+      this.columns = columns;
+      this.digests = digests;
+    }
+  }
+}
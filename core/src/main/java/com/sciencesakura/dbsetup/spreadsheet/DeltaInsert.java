@@ -0,0 +1,270 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import com.ninja_squad.dbsetup.bind.BinderConfiguration;
+import com.ninja_squad.dbsetup.generator.ValueGenerator;
+import com.ninja_squad.dbsetup.operation.Operation;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An operation which applies only the rows of a worksheet changed since the last execution.
+ *
+ * <p>The rows are identified by the value of the key column, and are compared with the {@link DeltaIndex} by the
+ * digests of their values and the default values. The removed rows are deleted, the changed rows are updated and
+ * the added rows are inserted by {@link BatchInsert}. If the index of the table is missing, all the rows of the
+ * table are deleted and the worksheet is inserted as a whole, with the {@link BulkLoader} if it is given.
+ * The index is not used either if the number of the rows of the table differs from it, for example the transaction of
+ * the last execution was rolled back or the table was modified by others.</p>
+ *
+ * <p>The default values are written by both the inserts and the updates, so the value generators given to the
+ * constructor must include them as the constants. The other generated values are used only for the inserted rows,
+ * and the generated columns of the updated rows are kept as they are.</p>
+ */
+final class DeltaInsert implements Operation {
+
+  private final String table;
+
+  private final SheetData sheet;
+
+  private final int keyColumn;
+
+  private final String[] defaultColumns;
+
+  private final @Nullable Object[] defaultValues;
+
+  private final List<String> columns;
+
+  private final BatchInsert insert;
+
+  private final int batchSize;
+
+  private final Object[] keys;
+
+  private final long[] digests;
+
+  private final Map<Object, Long> index;
+
+  DeltaInsert(String table, SheetData sheet, String keyColumn, Map<String, Object> defaultValues,
+              Map<String, ValueGenerator<?>> valueGenerators, int batchSize, boolean convert,
+              @Nullable BulkLoader loader) {
+    this.table = table;
+    this.sheet = sheet;
+    this.keyColumn = indexOf(sheet, keyColumn);
+    this.defaultColumns = defaultValues.keySet().toArray(new String[0]);
+    this.defaultValues = defaultValues.values().toArray();
+    var columns = new ArrayList<String>(sheet.columns.length + defaultColumns.length);
+    Collections.addAll(columns, sheet.columns);
+    Collections.addAll(columns, defaultColumns);
+    this.columns = Collections.unmodifiableList(columns);
+    this.insert = new BatchInsert(table, sheet, valueGenerators, batchSize, convert, loader);
+    this.batchSize = batchSize;
+    this.keys = new Object[sheet.rowCount];
+    this.digests = new long[sheet.rowCount];
+    this.index = new HashMap<>(sheet.rowCount * 4 / 3 + 1);
+    var md = sha256();
+    for (var r = 0; r < sheet.rowCount; r++) {
+      var key = sheet.value(r, this.keyColumn);
+      if (key == null) {
+        throw new DbSetupRuntimeException("key must not be blank: " + sheet.name + '[' + r + ']');
+      }
+      keys[r] = key;
+      digests[r] = digest(md, r);
+      if (index.put(key, digests[r]) != null) {
+        throw new DbSetupRuntimeException("duplicate key: " + sheet.name + '[' + r + "] " + key);
+      }
+    }
+  }
+
+  @Override
+  public void execute(Connection connection, BinderConfiguration configuration) throws SQLException {
+    var url = connection.getMetaData().getURL();
+    // the index is removed first, so that it is not used if this execution fails
+    var previous = url == null ? null : DeltaIndex.remove(url, table);
+    if (previous == null || !previous.columns.equals(columns) || count(connection) != previous.digests.size()) {
+      try (var stmt = connection.createStatement()) {
+        stmt.executeUpdate("delete from " + table);
+      }
+      insert.execute(connection, configuration);
+    } else {
+      var removed = new ArrayList<Object>();
+      for (var key : previous.digests.keySet()) {
+        if (!index.containsKey(key)) {
+          removed.add(key);
+        }
+      }
+      var inserted = new BitSet(sheet.rowCount);
+      var updated = new BitSet(sheet.rowCount);
+      for (var r = 0; r < sheet.rowCount; r++) {
+        var digest = previous.digests.get(keys[r]);
+        if (digest == null) {
+          inserted.set(r);
+        } else if (digest != digests[r]) {
+          updated.set(r);
+        }
+      }
+      delete(connection, configuration, removed);
+      update(connection, configuration, updated);
+      if (!inserted.isEmpty()) {
+        insert.execute(connection, configuration, inserted);
+      }
+    }
+    if (url != null) {
+      DeltaIndex.put(url, table, new DeltaIndex.Entry(columns, index));
+    }
+  }
+
+  private long count(Connection connection) throws SQLException {
+    try (var stmt = connection.createStatement();
+         var rs = stmt.executeQuery("select count(*) from " + table)) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+
+  private void delete(Connection connection, BinderConfiguration configuration, List<Object> keys)
+      throws SQLException {
+    if (keys.isEmpty()) {
+      return;
+    }
+    var sql = "delete from " + table + " where " + sheet.columns[keyColumn] + " = ?";
+    try (var stmt = connection.prepareStatement(sql)) {
+      var binder = BatchInsert.binders(BatchInsert.metadata(stmt), configuration, 1)[0];
+      var pending = 0;
+      for (var key : keys) {
+        binder.bind(stmt, 1, key);
+        stmt.addBatch();
+        if (++pending == batchSize) {
+          stmt.executeBatch();
+          pending = 0;
+        }
+      }
+      if (pending != 0) {
+        stmt.executeBatch();
+      }
+    }
+  }
+
+  private void update(Connection connection, BinderConfiguration configuration, BitSet rows) throws SQLException {
+    var width = sheet.columns.length;
+    if (rows.isEmpty() || width + defaultColumns.length == 1) {
+      return;
+    }
+    var sql = new StringBuilder("update ").append(table).append(" set ");
+    var count = 0;
+    for (var column : columns) {
+      if (column.equals(sheet.columns[keyColumn])) {
+        continue;
+      }
+      if (count++ != 0) {
+        sql.append(", ");
+      }
+      sql.append(column).append(" = ?");
+    }
+    sql.append(" where ").append(sheet.columns[keyColumn]).append(" = ?");
+    try (var stmt = connection.prepareStatement(sql.toString())) {
+      var binders = BatchInsert.binders(BatchInsert.metadata(stmt), configuration, count + 1);
+      var pending = 0;
+      for (var r = rows.nextSetBit(0); 0 <= r; r = rows.nextSetBit(r + 1)) {
+        var i = 0;
+        for (var c = 0; c < width; c++) {
+          if (c != keyColumn) {
+            binders[i].bind(stmt, i + 1, sheet.value(r, c));
+            i++;
+          }
+        }
+        for (var value : defaultValues) {
+          binders[i].bind(stmt, i + 1, value);
+          i++;
+        }
+        binders[i].bind(stmt, i + 1, keys[r]);
+        stmt.addBatch();
+        if (++pending == batchSize) {
+          stmt.executeBatch();
+          pending = 0;
+        }
+      }
+      if (pending != 0) {
+        stmt.executeBatch();
+      }
+    }
+  }
+
+  private long digest(MessageDigest md, int row) {
+    for (var c = 0; c < sheet.columns.length; c++) {
+      update(md, sheet.value(row, c));
+    }
+    for (var value : defaultValues) {
+      update(md, value);
+    }
+    var bytes = md.digest();
+    var digest = 0L;
+    for (var i = 0; i < Long.BYTES; i++) {
+      digest = digest << 8 | bytes[i] & 0xff;
+    }
+    return digest;
+  }
+
+  private static void update(MessageDigest md, @Nullable Object value) {
+    if (value == null) {
+      md.update((byte) 0);
+    } else if (value instanceof Double) {
+      md.update((byte) 1);
+      update(md, Double.doubleToLongBits((Double) value));
+    } else if (value instanceof Boolean) {
+      md.update((byte) 2);
+      md.update((byte) ((Boolean) value ? 1 : 0));
+    } else if (value instanceof Date) {
+      md.update((byte) 3);
+      update(md, ((Date) value).getTime());
+    } else {
+      // the length is written so that the boundaries of the strings are not ambiguous
+      var bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+      md.update((byte) 4);
+      update(md, bytes.length);
+      md.update(bytes);
+    }
+  }
+
+  private static void update(MessageDigest md, long value) {
+    for (var i = Long.BYTES - 1; 0 <= i; i--) {
+      md.update((byte) (value >>> i * 8));
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new DbSetupRuntimeException(e);
+    }
+  }
+
+  private static int indexOf(SheetData sheet, String column) {
+    for (var c = 0; c < sheet.columns.length; c++) {
+      if (sheet.columns[c].equals(column)) {
+        return c;
+      }
+    }
+    throw new DbSetupRuntimeException("key column not found: " + sheet.name + '.' + column);
+  }
+
+  @Override
+  public String toString() {
+    return "delta insert into " + table + " [key=" + sheet.columns[keyColumn] + ", rows=" + sheet.rowCount
+        + ", batchSize=" + batchSize + ']';
+  }
+}
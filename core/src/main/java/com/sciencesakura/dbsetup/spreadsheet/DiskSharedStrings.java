@@ -0,0 +1,195 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The shared strings table of the Office Open XML file stored in a memory-mapped temporary file.
+ *
+ * <p>The shared strings part is parsed with SAX, and every string is written to the temporary file in UTF-8.
+ * Only the offsets of the strings are held on the heap, and the strings are decoded from the mapped file
+ * when they are looked up, so the memory stays bounded even if the workbook has millions of distinct strings.
+ * The temporary file is deleted as soon as it is mapped, or when the JVM exits if the platform does not allow
+ * deleting the mapped file.</p>
+ *
+ * <p>The lookups are thread-safe because the mapped buffers are read only with the absolute methods.</p>
+ */
+final class DiskSharedStrings implements IntFunction<String> {
+
+  private static final int SEGMENT_BITS = 30;
+
+  private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+  private final ByteBuffer[] segments;
+
+  private final long[] offsets;
+
+  private DiskSharedStrings(ByteBuffer[] segments, long[] offsets) {
+    this.segments = segments;
+    this.offsets = offsets;
+  }
+
+  static DiskSharedStrings read(OPCPackage pkg) throws IOException, SAXException, ParserConfigurationException {
+    var file = Files.createTempFile("dbsetup-strings", ".bin");
+    try {
+      Handler handler;
+      try (var out = new BufferedOutputStream(Files.newOutputStream(file), 65536)) {
+        handler = new Handler(out);
+        for (var part : pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType())) {
+          try (var in = part.getInputStream()) {
+            parse(in, handler);
+          }
+        }
+      }
+      var offsets = Arrays.copyOf(handler.offsets, handler.count + 1);
+      offsets[handler.count] = handler.size;
+      return new DiskSharedStrings(map(file, handler.size), offsets);
+    } finally {
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        file.toFile().deleteOnExit();
+      }
+    }
+  }
+
+  private static ByteBuffer[] map(Path file, long size) throws IOException {
+    var segments = new ByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      for (var i = 0; i < segments.length; i++) {
+        var position = (long) i << SEGMENT_BITS;
+        var length = Math.min(SEGMENT_MASK + 1, size - position);
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      }
+    }
+    return segments;
+  }
+
+  private static void parse(InputStream in, DefaultHandler handler)
+      throws IOException, SAXException, ParserConfigurationException {
+    var xmlReader = XMLHelper.newXMLReader();
+    xmlReader.setContentHandler(handler);
+    xmlReader.parse(new InputSource(in));
+  }
+
+  @Override
+  public String apply(int index) {
+    if (index < 0 || offsets.length - 1 <= index) {
+      throw new IndexOutOfBoundsException("shared string index out of range: " + index);
+    }
+    var start = offsets[index];
+    var bytes = new byte[(int) (offsets[index + 1] - start)];
+    for (var i = 0; i < bytes.length; i++) {
+      var position = start + i;
+      bytes[i] = segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the text of every {@code si} element except the phonetic runs.
+   */
+  private static final class Handler extends DefaultHandler {
+
+    private static final String NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private final StringBuilder text = new StringBuilder(64);
+
+    private final OutputStream out;
+
+    private long[] offsets = new long[1024];
+
+    private int count;
+
+    private long size;
+
+    private boolean textOpen;
+
+    private boolean phonetic;
+
+    Handler(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String name, Attributes attributes) {
+      if (!NS.equals(uri)) {
+        return;
+      }
+      switch (localName) {
+        case "si":
+          text.setLength(0);
+          break;
+        case "rPh":
+          phonetic = true;
+          break;
+        case "t":
+          textOpen = !phonetic;
+          break;
+        default:
+          break;
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String name) throws SAXException {
+      if (!NS.equals(uri)) {
+        return;
+      }
+      switch (localName) {
+        case "si":
+          write();
+          break;
+        case "rPh":
+          phonetic = false;
+          break;
+        case "t":
+          textOpen = false;
+          break;
+        default:
+          break;
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (textOpen) {
+        text.append(ch, start, length);
+      }
+    }
+
+    private void write() throws SAXException {
+      if (count == offsets.length - 1) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+      offsets[count++] = size;
+      var bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+      try {
+        out.write(bytes);
+      } catch (IOException e) {
+        throw new SAXException(e);
+      }
+      size += bytes.length;
+    }
+  }
+}
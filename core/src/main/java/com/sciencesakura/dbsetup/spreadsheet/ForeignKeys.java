@@ -0,0 +1,279 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Finds the foreign keys between the tables to import with {@link DatabaseMetaData#getImportedKeys}.
+ *
+ * <p>The table names are given as they are written in SQL: {@code table} or {@code schema.table},
+ * and each part may be quoted with double quotes. Unquoted names are converted to the case the database
+ * stores the identifiers in before they are looked up, and compared with the stored names ignoring case.
+ * Quoted names may contain dots, and are compared case-sensitively unless the database
+ * {@linkplain DatabaseMetaData#storesMixedCaseQuotedIdentifiers() treats them as case-insensitive}.</p>
+ *
+ * <p>The referenced tables are cached per JDBC URL and table, so that the metadata is read only once
+ * even if the same tables are imported many times.</p>
+ */
+final class ForeignKeys {
+
+  private static final Map<String, Map<String, List<@Nullable String[]>>> cache = new ConcurrentHashMap<>();
+
+  private ForeignKeys() {
+  }
+
+  /**
+   * Returns the tables referenced by each of the given tables.
+   *
+   * @param connection the connection to read the metadata
+   * @param tables     the table names
+   * @return the indices of the referenced tables in {@code tables}, in the same order as {@code tables};
+   *     a table referencing itself is not included
+   */
+  static List<Set<Integer>> parents(Connection connection, List<String> tables) throws SQLException {
+    var metadata = connection.getMetaData();
+    var url = metadata.getURL();
+    Map<String, List<@Nullable String[]>> references = url == null
+        ? new ConcurrentHashMap<>()
+        : cache.computeIfAbsent(url, k -> new ConcurrentHashMap<>());
+    var names = new ArrayList<@Nullable String[]>(tables.size());
+    var quoted = new ArrayList<boolean[]>(tables.size());
+    var quotedIgnoreCase = metadata.storesMixedCaseQuotedIdentifiers();
+    for (var table : tables) {
+      var parts = split(table);
+      names.add(name(metadata, parts));
+      quoted.add(new boolean[] {
+          parts[0] != null && isQuoted(parts[0]) && !quotedIgnoreCase,
+          isQuoted(parts[1]) && !quotedIgnoreCase});
+    }
+    var parents = new ArrayList<Set<Integer>>(tables.size());
+    for (var name : names) {
+      var set = new LinkedHashSet<Integer>();
+      for (var reference : references(metadata, references, name)) {
+        for (var j = 0; j < names.size(); j++) {
+          var other = names.get(j);
+          var caseSensitive = quoted.get(j);
+          if (matches(other, caseSensitive, reference[0], reference[1])
+              && !matches(other, caseSensitive, name[0], name[1])) {
+            set.add(j);
+          }
+        }
+      }
+      parents.add(set);
+    }
+    return parents;
+  }
+
+  /**
+   * Divides the tables into the groups which can be inserted in order.
+   *
+   * <p>Every table of a group references only the tables of the preceding groups, so that the tables of the same
+   * group can be inserted in any order or concurrently. The tables in a group are kept in the given order.
+   * If the foreign keys are circular, the cycle is broken by putting the first table of the cycle in its own group,
+   * once all the tables referenced from outside the cycle are placed. The tables which are not in the cycle
+   * are always placed after the tables they reference.</p>
+   *
+   * @param parents the indices of the referenced tables returned by {@link #parents(Connection, List)}
+   * @return the groups of the indices of the tables
+   */
+  static List<List<Integer>> groups(List<Set<Integer>> parents) {
+    var components = components(parents);
+    var groups = new ArrayList<List<Integer>>();
+    var done = new boolean[parents.size()];
+    var remaining = parents.size();
+    while (remaining != 0) {
+      var group = new ArrayList<Integer>();
+      for (var i = 0; i < parents.size(); i++) {
+        if (!done[i] && isSatisfied(parents.get(i), done)) {
+          group.add(i);
+        }
+      }
+      if (group.isEmpty()) {
+        group.add(breakCycle(parents, components, done));
+      }
+      for (var i : group) {
+        done[i] = true;
+      }
+      remaining -= group.size();
+      groups.add(group);
+    }
+    return groups;
+  }
+
+  private static boolean isSatisfied(Set<Integer> parents, boolean[] done) {
+    for (var parent : parents) {
+      if (!done[parent]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the first remaining table of the cycle whose tables reference only the placed tables
+   * outside the cycle.
+   */
+  private static int breakCycle(List<Set<Integer>> parents, int[] components, boolean[] done) {
+    var blocked = new boolean[parents.size()];
+    for (var i = 0; i < parents.size(); i++) {
+      if (done[i]) {
+        continue;
+      }
+      for (var parent : parents.get(i)) {
+        if (!done[parent] && components[parent] != components[i]) {
+          blocked[components[i]] = true;
+        }
+      }
+    }
+    for (var i = 0; i < parents.size(); i++) {
+      if (!done[i] && !blocked[components[i]]) {
+        return i;
+      }
+    }
+    // unreachable: the components referencing each other form no cycle, so that one of them is not blocked
+    throw new IllegalStateException("no cycle to break");
+  }
+
+  /**
+   * Returns the strongly connected component of each table with the Tarjan's algorithm.
+   * The tables in the same cycle have the same component number.
+   */
+  private static int[] components(List<Set<Integer>> parents) {
+    var n = parents.size();
+    var components = new int[n];
+    var index = new int[n];
+    var low = new int[n];
+    var onStack = new boolean[n];
+    var stack = new ArrayDeque<Integer>();
+    Arrays.fill(index, -1);
+    var counter = new int[2];
+    for (var i = 0; i < n; i++) {
+      if (index[i] < 0) {
+        connect(i, parents, components, index, low, onStack, stack, counter);
+      }
+    }
+    return components;
+  }
+
+  private static void connect(int v, List<Set<Integer>> parents, int[] components, int[] index, int[] low,
+                              boolean[] onStack, Deque<Integer> stack, int[] counter) {
+    index[v] = counter[0];
+    low[v] = counter[0];
+    counter[0]++;
+    stack.push(v);
+    onStack[v] = true;
+    for (var w : parents.get(v)) {
+      if (index[w] < 0) {
+        connect(w, parents, components, index, low, onStack, stack, counter);
+        low[v] = Math.min(low[v], low[w]);
+      } else if (onStack[w]) {
+        low[v] = Math.min(low[v], index[w]);
+      }
+    }
+    if (low[v] == index[v]) {
+      int w;
+      do {
+        w = stack.pop();
+        onStack[w] = false;
+        components[w] = counter[1];
+      } while (w != v);
+      counter[1]++;
+    }
+  }
+
+  private static List<@Nullable String[]> references(DatabaseMetaData metadata,
+                                                     Map<String, List<@Nullable String[]>> cache,
+                                                     @Nullable String[] name) throws SQLException {
+    var key = name[0] + "." + name[1];
+    var references = cache.get(key);
+    if (references != null) {
+      return references;
+    }
+    references = new ArrayList<>();
+    try (var rs = metadata.getImportedKeys(null, name[0], name[1])) {
+      while (rs.next()) {
+        references.add(new String[] {rs.getString("PKTABLE_SCHEM"), rs.getString("PKTABLE_NAME")});
+      }
+    }
+    cache.put(key, references);
+    return references;
+  }
+
+  private static boolean matches(@Nullable String[] name, boolean[] caseSensitive,
+                                 @Nullable String schema, @Nullable String table) {
+    if (!equals(name[1], table, caseSensitive[1])) {
+      return false;
+    }
+    return name[0] == null || schema == null || equals(name[0], schema, caseSensitive[0]);
+  }
+
+  private static boolean equals(String name, @Nullable String stored, boolean caseSensitive) {
+    return caseSensitive ? name.equals(stored) : name.equalsIgnoreCase(stored);
+  }
+
+  /**
+   * Returns the schema and the table name as they are stored in the database.
+   */
+  static @Nullable String[] name(DatabaseMetaData metadata, String table) throws SQLException {
+    return name(metadata, split(table));
+  }
+
+  private static @Nullable String[] name(DatabaseMetaData metadata, @Nullable String[] parts) throws SQLException {
+    return new String[] {parts[0] == null ? null : identifier(metadata, parts[0]), identifier(metadata, parts[1])};
+  }
+
+  /**
+   * Splits the name at the last dot outside double quotes, and returns the schema part, or {@code null}
+   * if there is none, and the table part as they are written.
+   */
+  static @Nullable String[] split(String table) {
+    var dot = -1;
+    var quoted = false;
+    for (var i = 0; i < table.length(); i++) {
+      var c = table.charAt(i);
+      if (c == '"') {
+        quoted = !quoted;
+      } else if (c == '.' && !quoted) {
+        dot = i;
+      }
+    }
+    if (dot < 0) {
+      return new String[] {null, table};
+    }
+    return new String[] {table.substring(0, dot), table.substring(dot + 1)};
+  }
+
+  private static boolean isQuoted(String identifier) {
+    return 2 <= identifier.length() && identifier.startsWith("\"") && identifier.endsWith("\"");
+  }
+
+  /**
+   * Returns the identifier as it is stored in the database.
+   */
+  static String identifier(DatabaseMetaData metadata, String identifier) throws SQLException {
+    if (isQuoted(identifier)) {
+      return identifier.substring(1, identifier.length() - 1).replace("\"\"", "\"");
+    }
+    if (metadata.storesUpperCaseIdentifiers()) {
+      return identifier.toUpperCase(Locale.ROOT);
+    }
+    if (metadata.storesLowerCaseIdentifiers()) {
+      return identifier.toLowerCase(Locale.ROOT);
+    }
+    return identifier;
+  }
+}
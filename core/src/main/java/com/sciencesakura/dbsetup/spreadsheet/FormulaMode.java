@@ -0,0 +1,32 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+/**
+ * The ways to get the values of the formula cells.
+ *
+ * @author sciencesakura
+ * @see Import.Builder#formulaMode(FormulaMode)
+ */
+public enum FormulaMode {
+
+  /**
+   * Evaluates every formula and replaces the formula in the parsed workbook with its result.
+   * This is the default.
+   */
+  EVALUATE,
+
+  /**
+   * Evaluates every formula but keeps the formulas in the parsed workbook, so that the evaluation results are
+   * kept by the formula evaluator of Apache POI and shared between all the worksheets.
+   * A cell referenced by many formulas, such as a lookup table, is evaluated only once.
+   */
+  EVALUATE_WITH_CACHE,
+
+  /**
+   * Uses the results of the formulas which were saved in the file by the spreadsheet application,
+   * and evaluates nothing. The results may be missing if the file was not saved by a spreadsheet application,
+   * and are read as blank cells in that case.
+   */
+  CACHED_RESULT
+}
@@ -4,21 +4,36 @@ package com.sciencesakura.dbsetup.spreadsheet;
 
 import static java.util.Objects.requireNonNull;
 
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
 import com.ninja_squad.dbsetup.bind.BinderConfiguration;
+import com.ninja_squad.dbsetup.destination.DataSourceDestination;
+import com.ninja_squad.dbsetup.destination.Destination;
 import com.ninja_squad.dbsetup.generator.ValueGenerator;
 import com.ninja_squad.dbsetup.operation.Operation;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.regex.Pattern;
+import javax.sql.DataSource;
 import org.jspecify.annotations.Nullable;
 
 /**
- * An Operation which imports the Microsoft Excel file into the database.
+ * An Operation which imports the Microsoft Excel file, or the CSV or TSV file, into the database.
  *
  * <p>We recommend to import {@code excel} method statically so that your code looks clearer.</p>
  * <pre>{@code import static com.sciencesakura.dbsetup.spreadsheet.Import.excel;}</pre>
@@ -42,18 +57,188 @@ public final class Import implements Operation {
    * @throws IllegalArgumentException if the Excel file is not found
    */
   public static Builder excel(String location) {
+    return new Builder(resource(location));
+  }
+
+  /**
+   * Create a new {@code Import.Builder} instance which reads the Excel file on the file system.
+   *
+   * <p>The file is opened with the random access instead of being read into memory as a whole,
+   * so the large Excel files are read with less memory than the ones on the classpath.</p>
+   *
+   * @param location the path to the Excel file
+   * @return the new {@code Import.Builder} instance
+   * @throws IllegalArgumentException if the Excel file is not found
+   */
+  public static Builder excel(Path location) {
+    return new Builder(file(location));
+  }
+
+  /**
+   * Create a new {@code Import.Builder} instance which reads the Excel file on the file system.
+   *
+   * @param location the Excel file
+   * @return the new {@code Import.Builder} instance
+   * @throws IllegalArgumentException if the Excel file is not found
+   * @see #excel(Path)
+   */
+  public static Builder excel(File location) {
+    return excel(requireNonNull(location, "location must not be null").toPath());
+  }
+
+  /**
+   * Create a new {@code Import.Builder} instance which reads the Excel file from the given bytes,
+   * such as the one generated by the test.
+   *
+   * @param contents the contents of the Excel file, which are copied
+   * @return the new {@code Import.Builder} instance
+   */
+  public static Builder excel(byte[] contents) {
+    return new Builder(MemoryLocation.of(requireNonNull(contents, "contents must not be null").clone()));
+  }
+
+  /**
+   * Create a new {@code Import.Builder} instance which reads the Excel file from the given stream.
+   * The stream is read to the end, but is not closed.
+   *
+   * @param contents the stream of the contents of the Excel file
+   * @return the new {@code Import.Builder} instance
+   * @throws DbSetupRuntimeException if failed to read the stream
+   */
+  public static Builder excel(InputStream contents) {
+    requireNonNull(contents, "contents must not be null");
+    try {
+      return new Builder(MemoryLocation.of(contents.readAllBytes()));
+    } catch (IOException e) {
+      throw new DbSetupRuntimeException("failed to read " + contents, e);
+    }
+  }
+
+  /**
+   * Create a new {@code Import.Builder} instance which reads the CSV file as a worksheet.
+   *
+   * <p>The worksheet is named after the file name without the extension, such as {@code customers} for
+   * {@code data/customers.csv}, and the table name is resolved from it. The file is read in UTF-8 by default,
+   * and the values are given to the database as strings.</p>
+   *
+   * @param location the {@code /}-separated path from classpath root to the CSV file
+   * @return the new {@code Import.Builder} instance
+   * @throws IllegalArgumentException if the CSV file is not found
+   */
+  public static Builder csv(String location) {
+    return new Builder(resource(location), SourceFormat.CSV);
+  }
+
+  /**
+   * Create a new {@code Import.Builder} instance which reads the CSV file on the file system as a worksheet.
+   *
+   * @param location the path to the CSV file
+   * @return the new {@code Import.Builder} instance
+   * @throws IllegalArgumentException if the CSV file is not found
+   * @see #csv(String)
+   */
+  public static Builder csv(Path location) {
+    return new Builder(file(location), SourceFormat.CSV);
+  }
+
+  /**
+   * Create a new {@code Import.Builder} instance which reads the TSV file as a worksheet.
+   * The fields are separated by the tab characters, and are not quoted.
+   *
+   * @param location the {@code /}-separated path from classpath root to the TSV file
+   * @return the new {@code Import.Builder} instance
+   * @throws IllegalArgumentException if the TSV file is not found
+   * @see #csv(String)
+   */
+  public static Builder tsv(String location) {
+    return new Builder(resource(location), SourceFormat.TSV);
+  }
+
+  /**
+   * Create a new {@code Import.Builder} instance which reads the TSV file on the file system as a worksheet.
+   *
+   * @param location the path to the TSV file
+   * @return the new {@code Import.Builder} instance
+   * @throws IllegalArgumentException if the TSV file is not found
+   * @see #tsv(String)
+   */
+  public static Builder tsv(Path location) {
+    return new Builder(file(location), SourceFormat.TSV);
+  }
+
+  /**
+   * Create a new {@code Import.Builder} instance which reads the OpenDocument Spreadsheet file (.ods).
+   *
+   * <p>The file is always read in the streaming manner, so that the streaming mode and the formula mode have
+   * no effect: the hidden tables are skipped, and the results of the formulas saved in the file are used.</p>
+   *
+   * @param location the {@code /}-separated path from classpath root to the ODS file
+   * @return the new {@code Import.Builder} instance
+   * @throws IllegalArgumentException if the ODS file is not found
+   */
+  public static Builder ods(String location) {
+    return new Builder(resource(location), SourceFormat.ODS);
+  }
+
+  /**
+   * Create a new {@code Import.Builder} instance which reads the OpenDocument Spreadsheet file on the file system.
+   *
+   * @param location the path to the ODS file
+   * @return the new {@code Import.Builder} instance
+   * @throws IllegalArgumentException if the ODS file is not found
+   * @see #ods(String)
+   */
+  public static Builder ods(Path location) {
+    return new Builder(file(location), SourceFormat.ODS);
+  }
+
+  /**
+   * Create a new {@code Workbooks.Builder} instance which imports the Excel files of the given builders as a whole.
+   *
+   * @param builders the builders of the Excel files, whose tables are inserted in this order
+   * @return the new {@code Workbooks.Builder} instance
+   * @see Workbooks
+   */
+  public static Workbooks.Builder workbooks(Builder... builders) {
+    requireNonNull(builders, "builders must not be null");
+    for (var builder : builders) {
+      requireNonNull(builder, "builders must not contain null");
+    }
+    return new Workbooks.Builder(List.of(builders));
+  }
+
+  private static URL resource(String location) {
     var urlLocation = Import.class.getClassLoader()
         .getResource(requireNonNull(location, "location must not be null"));
     if (urlLocation == null) {
       throw new IllegalArgumentException(location + " not found");
     }
-    return new Builder(urlLocation);
+    return urlLocation;
+  }
+
+  private static URL file(Path location) {
+    requireNonNull(location, "location must not be null");
+    if (!Files.isRegularFile(location)) {
+      throw new IllegalArgumentException(location + " not found");
+    }
+    try {
+      return location.toUri().toURL();
+    } catch (MalformedURLException e) {
+      throw new IllegalArgumentException(location + " not found", e);
+    }
   }
 
-  private final Operation internalOperation;
+  private final Builder builder;
+
+  private volatile @Nullable Operation internalOperation;
+
+  private volatile @Nullable String fingerprint;
 
   private Import(Builder builder) {
-    this.internalOperation = OperationBuilder.build(builder);
+    this.builder = builder;
+    if (!builder.lazy) {
+      this.internalOperation = OperationBuilder.build(builder);
+    }
   }
 
   /**
@@ -61,12 +246,75 @@ public final class Import implements Operation {
    */
   @Override
   public void execute(Connection connection, BinderConfiguration configuration) throws SQLException {
-    internalOperation.execute(connection, configuration);
+    internalOperation().execute(connection, configuration);
+  }
+
+  private Operation internalOperation() {
+    var operation = internalOperation;
+    if (operation == null) {
+      synchronized (this) {
+        operation = internalOperation;
+        if (operation == null) {
+          operation = OperationBuilder.build(builder);
+          internalOperation = operation;
+        }
+      }
+    }
+    return operation;
+  }
+
+  /**
+   * Returns the fingerprint of this operation.
+   * The fingerprint is computed from the contents of the Excel file and the settings of the builder which affect
+   * the inserted rows, and is computed only once per instance.
+   *
+   * <p>The table name resolver given as a function and the value generators are the same only if they are
+   * the same instances, so share them, for example in static fields, to skip the launch with
+   * {@link com.ninja_squad.dbsetup.DbSetupTracker}.
+   * The executors, the destination of the parallel loading and the listener are not compared.</p>
+   *
+   * @return the Base64-encoded SHA-256 fingerprint
+   * @see #equals(Object)
+   */
+  public String fingerprint() {
+    var fingerprint = this.fingerprint;
+    if (fingerprint == null) {
+      fingerprint = ImportFingerprint.of(builder);
+      this.fingerprint = fingerprint;
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Returns {@code true} if the given object is an {@code Import} operation with the same {@link #fingerprint()}.
+   *
+   * <p>So {@link com.ninja_squad.dbsetup.DbSetupTracker} can skip the launch of the same {@code Import} operation
+   * built again, for example in a method annotated with {@code @BeforeEach}, after a read-only test called
+   * {@link com.ninja_squad.dbsetup.DbSetupTracker#skipNextLaunch()}. If the Excel file is edited,
+   * the fingerprint changes and the operation is launched again.</p>
+   *
+   * @param obj the object to compare with
+   * @return {@code true} if the given object is an equivalent {@code Import} operation
+   */
+  @Override
+  public boolean equals(@Nullable Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof Import)) {
+      return false;
+    }
+    return fingerprint().equals(((Import) obj).fingerprint());
+  }
+
+  @Override
+  public int hashCode() {
+    return fingerprint().hashCode();
   }
 
   /**
    * A builder to create the {@code Import} operation.
-   * The builder instance is created by the static method {@link Import#excel(String)}.
+   * The builder instance is created by the static methods such as {@link Import#excel(String)}.
    * <table class="striped">
    *   <caption>Settings</caption>
    *   <thead>
@@ -107,6 +355,111 @@ public final class Import implements Operation {
    *       <td>{@code 0} rows</td>
    *       <td>{@link #skipAfterHeader(int)}</td>
    *     </tr>
+   *     <tr>
+   *       <th>Maximum data rows per worksheet</th>
+   *       <td>unlimited</td>
+   *       <td>{@link #maxRows(int)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Stop at the first blank row</th>
+   *       <td>disabled</td>
+   *       <td>{@link #stopAtBlankRow()}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Budget of bytes and cells</th>
+   *       <td>unlimited</td>
+   *       <td>{@link #maxBytes(long)} and {@link #maxCells(long)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Character encoding of CSV and TSV files</th>
+   *       <td>UTF-8</td>
+   *       <td>{@link #charset(Charset)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Streaming mode</th>
+   *       <td>disabled</td>
+   *       <td>{@link #streaming()}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Shared strings table on disk</th>
+   *       <td>disabled</td>
+   *       <td>{@link #sharedStringsOnDisk()}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Values of formula cells</th>
+   *       <td>{@link FormulaMode#EVALUATE}</td>
+   *       <td>{@link #formulaMode(FormulaMode)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Cache of parsed Excel files</th>
+   *       <td>disabled</td>
+   *       <td>{@link #cached()}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Binary snapshot of parsed Excel file</th>
+   *       <td>disabled</td>
+   *       <td>{@link #snapshot(Path)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Lazy parsing</th>
+   *       <td>disabled</td>
+   *       <td>{@link #lazy()}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>JDBC batch size</th>
+   *       <td>no batch execution</td>
+   *       <td>{@link #batchSize(int)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Chunked import</th>
+   *       <td>disabled</td>
+   *       <td>{@link #chunked(int)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Parallel reading of worksheets</th>
+   *       <td>disabled</td>
+   *       <td>{@link #parallel()} or {@link #parallel(Executor)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Ordering tables by foreign keys</th>
+   *       <td>disabled</td>
+   *       <td>{@link #orderByForeignKeys()}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Incremental import</th>
+   *       <td>disabled</td>
+   *       <td>{@link #incremental(String, String)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Conversion by column metadata</th>
+   *       <td>disabled</td>
+   *       <td>{@link #convertWithMetadata()}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Bulk loader</th>
+   *       <td>none</td>
+   *       <td>{@link #loader(BulkLoader)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Parallel loading of tables</th>
+   *       <td>disabled</td>
+   *       <td>{@link #parallelLoad(Destination, int)} or {@link #parallelLoad(DataSource, int)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Commit before parallel loading</th>
+   *       <td>not allowed</td>
+   *       <td>{@link #commitBeforeParallelLoad()}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Column types</th>
+   *       <td>inferred from the values</td>
+   *       <td>{@link #withColumnType(String, String, ColumnType)}</td>
+   *     </tr>
+   *     <tr>
+   *       <th>Listener of measurements</th>
+   *       <td>none</td>
+   *       <td>{@link #listener(ImportListener)}</td>
+   *     </tr>
    *   </tbody>
    * </table>
    *
@@ -115,32 +468,127 @@ public final class Import implements Operation {
   public static final class Builder {
 
     final URL location;
+    final SourceFormat format;
+    Charset charset = StandardCharsets.UTF_8;
     Pattern @Nullable [] include;
     Pattern @Nullable [] exclude;
     Function<String, String> resolver = Function.identity();
+    @Nullable Map<String, String> resolverMap;
     int left;
     int top;
     int skipAfterHeader;
+    int maxRows;
+    boolean stopAtBlankRow;
+    long maxBytes;
+    long maxCells;
+    boolean streaming;
+    boolean sharedStringsOnDisk;
+    SpreadsheetSource.@Nullable Factory source;
+    FormulaMode formulaMode = FormulaMode.EVALUATE;
+    boolean cached;
+    @Nullable Path snapshot;
+    boolean lazy;
+    int batchSize;
+    int chunkSize;
+    @Nullable Executor executor;
+    boolean orderByForeignKeys;
+    boolean convertWithMetadata;
+    @Nullable BulkLoader loader;
+    @Nullable Destination loadDestination;
+    int loadParallelism;
+    boolean commitBeforeLoad;
+    @Nullable ImportListener listener;
     final Map<String, Map<String, Object>> defaultValues = new HashMap<>();
     final Map<String, Map<String, ValueGenerator<?>>> valueGenerators = new HashMap<>();
+    final Map<String, Map<String, ColumnType>> columnTypes = new HashMap<>();
+    final Map<String, String> keyColumns = new HashMap<>();
     private boolean built;
 
-    private Builder(URL location) {
+    Builder(URL location) {
+      this(location, SourceFormat.EXCEL);
+    }
+
+    Builder(URL location, SourceFormat format) {
       this.location = location;
+      this.format = format;
+    }
+
+    /**
+     * Copies the settings of the given builder, so that the copy is not affected by the later changes of it.
+     */
+    private Builder(Builder other) {
+      location = other.location;
+      format = other.format;
+      charset = other.charset;
+      include = other.include;
+      exclude = other.exclude;
+      resolver = other.resolver;
+      resolverMap = other.resolverMap == null ? null : new LinkedHashMap<>(other.resolverMap);
+      left = other.left;
+      top = other.top;
+      skipAfterHeader = other.skipAfterHeader;
+      maxRows = other.maxRows;
+      stopAtBlankRow = other.stopAtBlankRow;
+      maxBytes = other.maxBytes;
+      maxCells = other.maxCells;
+      streaming = other.streaming;
+      sharedStringsOnDisk = other.sharedStringsOnDisk;
+      source = other.source;
+      formulaMode = other.formulaMode;
+      cached = other.cached;
+      snapshot = other.snapshot;
+      lazy = other.lazy;
+      batchSize = other.batchSize;
+      chunkSize = other.chunkSize;
+      executor = other.executor;
+      orderByForeignKeys = other.orderByForeignKeys;
+      convertWithMetadata = other.convertWithMetadata;
+      loader = other.loader;
+      loadDestination = other.loadDestination;
+      loadParallelism = other.loadParallelism;
+      commitBeforeLoad = other.commitBeforeLoad;
+      listener = other.listener;
+      other.defaultValues.forEach((table, values) -> defaultValues.put(table, new LinkedHashMap<>(values)));
+      other.valueGenerators.forEach((table, generators) -> valueGenerators.put(table, new LinkedHashMap<>(generators)));
+      other.columnTypes.forEach((table, types) -> columnTypes.put(table, new LinkedHashMap<>(types)));
+      keyColumns.putAll(other.keyColumns);
+      built = true;
     }
 
     /**
      * Build a new {@code Import} operation instance.
      *
      * @return the new {@code Import} instance
-     * @throws IllegalStateException if this builder has already built operation
+     * @throws IllegalStateException if this builder has already built operation,
+     *                               or the chunked import is combined with the settings which need all the rows
      */
     public Import build() {
+      return new Import(claim());
+    }
+
+    /**
+     * Marks this builder as built after checking its settings.
+     *
+     * @return the copy of the settings, which is not affected by the later changes of this builder
+     */
+    Builder claim() {
+      check();
+      built = true;
+      return new Builder(this);
+    }
+
+    /**
+     * Checks the settings of this builder without marking it as built.
+     */
+    void check() {
       if (built) {
         throw new IllegalStateException("already built");
       }
-      built = true;
-      return new Import(this);
+      if (chunkSize != 0 && (cached || snapshot != null || executor != null || orderByForeignKeys
+          || !keyColumns.isEmpty() || loadDestination != null)) {
+        throw new IllegalStateException("chunked import cannot be combined with cache, snapshot, parallel reading, "
+            + "ordering by foreign keys, incremental import or parallel loading");
+      }
     }
 
     /**
@@ -224,7 +672,9 @@ public final class Import implements Operation {
      */
     public Builder resolver(Map<String, String> resolver) {
       requireNonNull(resolver, "resolver must not be null");
-      return resolver(resolver::get);
+      resolver(resolver::get);
+      this.resolverMap = resolver;
+      return this;
     }
 
     /**
@@ -236,6 +686,7 @@ public final class Import implements Operation {
      */
     public Builder resolver(Function<String, String> resolver) {
       this.resolver = requireNonNull(resolver, "resolver must not be null");
+      this.resolverMap = null;
       return this;
     }
 
@@ -300,6 +751,443 @@ public final class Import implements Operation {
       return this;
     }
 
+    /**
+     * Sets the maximum number of the data rows of each worksheet.
+     * By default, the number of the data rows is not limited.
+     *
+     * <p>If a worksheet has more data rows, the import fails with the used range of the worksheet, without reading
+     * the rest of the file. The blank rows are also counted unless {@link #stopAtBlankRow()} is enabled, so that
+     * a stray formatted cell far below the data is detected instead of being read as many blank rows.</p>
+     *
+     * @param maxRows the maximum number of the data rows, must be positive
+     * @return the reference to this object
+     * @throws IllegalArgumentException if the argument is less than or equal to {@code 0}
+     */
+    public Builder maxRows(int maxRows) {
+      if (maxRows <= 0) {
+        throw new IllegalArgumentException("maxRows must be greater than 0");
+      }
+      this.maxRows = maxRows;
+      return this;
+    }
+
+    /**
+     * Enables stopping at the first blank row.
+     * By default, the data rows end at the first missing row, and the rows which exist in the file
+     * but have no values within the columns of the header are imported as the rows of {@code null}.
+     *
+     * <p>If enabled, the data rows end at the first row without any value, so that the empty but formatted rows
+     * after the data are not read.</p>
+     *
+     * @return the reference to this object
+     */
+    public Builder stopAtBlankRow() {
+      this.stopAtBlankRow = true;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of the bytes read from the file.
+     * By default, the number of the bytes is not limited.
+     *
+     * <p>The size of the file on the file system is checked before reading, and the other files are checked
+     * while reading. If the file is larger, the import fails without reading the rest of the file.</p>
+     *
+     * @param maxBytes the maximum number of the bytes, must be positive
+     * @return the reference to this object
+     * @throws IllegalArgumentException if the argument is less than or equal to {@code 0}
+     */
+    public Builder maxBytes(long maxBytes) {
+      if (maxBytes <= 0) {
+        throw new IllegalArgumentException("maxBytes must be greater than 0");
+      }
+      this.maxBytes = maxBytes;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of the cells of the data rows of all the worksheets.
+     * By default, the number of the cells is not limited.
+     *
+     * <p>Each data row counts as many cells as the columns of the header row. If the worksheets have more cells,
+     * the import fails with the used range of the worksheet, without reading the rest of the file.</p>
+     *
+     * @param maxCells the maximum number of the cells, must be positive
+     * @return the reference to this object
+     * @throws IllegalArgumentException if the argument is less than or equal to {@code 0}
+     */
+    public Builder maxCells(long maxCells) {
+      if (maxCells <= 0) {
+        throw new IllegalArgumentException("maxCells must be greater than 0");
+      }
+      this.maxCells = maxCells;
+      return this;
+    }
+
+    /**
+     * Sets the character encoding of the CSV and TSV files.
+     * By default, the files are read in UTF-8. The byte order mark at the beginning of the file is skipped.
+     * This is ignored for the Excel files.
+     *
+     * @param charset the character encoding
+     * @return the reference to this object
+     */
+    public Builder charset(Charset charset) {
+      this.charset = requireNonNull(charset, "charset must not be null");
+      return this;
+    }
+
+    /**
+     * Enables the streaming mode.
+     * In the streaming mode, the worksheets are read row by row with the event model of Apache POI
+     * instead of loading the whole workbook into memory, so that large files can be imported with less memory.
+     *
+     * <p>The streaming mode has the following limitations:</p>
+     * <ul>
+     *   <li>Only the Office Open XML format (.xlsx) is supported.</li>
+     *   <li>Formulas are not evaluated. The results cached in the file when it was saved are used instead.</li>
+     *   <li>{@code poi-ooxml} is required at runtime.</li>
+     * </ul>
+     *
+     * @return the reference to this object
+     */
+    public Builder streaming() {
+      this.streaming = true;
+      return this;
+    }
+
+    /**
+     * Sets the source which reads the file in place of the one selected by the format and the streaming mode.
+     *
+     * @param source the factory of the source
+     * @return the reference to this object
+     */
+    Builder source(SpreadsheetSource.Factory source) {
+      this.source = requireNonNull(source, "source must not be null");
+      return this;
+    }
+
+    /**
+     * Enables the streaming mode with the shared strings table stored on disk.
+     * By default, all the strings shared by the cells are loaded into memory before the worksheets are read.
+     * If this is set, the strings are written to a temporary file which is mapped into memory,
+     * and only their offsets are held on the heap, so that the memory stays bounded even if the workbook has
+     * millions of distinct strings. The temporary file is deleted when the workbook is read.
+     *
+     * @return the reference to this object
+     * @see #streaming()
+     */
+    public Builder sharedStringsOnDisk() {
+      this.streaming = true;
+      this.sharedStringsOnDisk = true;
+      return this;
+    }
+
+    /**
+     * Specifies how to get the values of the formula cells.
+     * This is ignored in the streaming mode, which always uses the results cached in the file.
+     *
+     * @param formulaMode the way to get the values of the formula cells
+     * @return the reference to this object
+     * @see FormulaMode
+     */
+    public Builder formulaMode(FormulaMode formulaMode) {
+      this.formulaMode = requireNonNull(formulaMode, "formulaMode must not be null");
+      return this;
+    }
+
+    /**
+     * Enables the cache of parsed Excel files.
+     * The parsed contents of the Excel file are stored in the process-wide {@link WorkbookCache},
+     * and are reused by the other {@code Import} operations which import the same unmodified file
+     * with the same settings.
+     *
+     * @return the reference to this object
+     * @see WorkbookCache
+     */
+    public Builder cached() {
+      this.cached = true;
+      return this;
+    }
+
+    /**
+     * Enables the binary snapshot of the parsed Excel file.
+     * The parsed contents of the worksheets are written to the given file in a compact binary format,
+     * and the following imports read the file with a memory-mapped {@link java.nio.channels.FileChannel}
+     * instead of parsing the Excel file.
+     *
+     * <p>The snapshot holds the SHA-256 digest of the Excel file and the settings which affect parsing,
+     * such as the sheets to include and the margins. If they do not match the current ones, the Excel file is
+     * parsed and the snapshot is rebuilt. So the snapshot can be created ahead of time, for example by running
+     * the tests once, and can be kept in a build directory which is not cleaned every time.
+     * If the column types are declared, the table name resolver is a part of the settings, so give it as a map
+     * with {@link #resolver(Map)} to reuse the snapshot in another process.</p>
+     *
+     * @param snapshot the path to the snapshot file
+     * @return the reference to this object
+     */
+    public Builder snapshot(Path snapshot) {
+      this.snapshot = requireNonNull(snapshot, "snapshot must not be null");
+      return this;
+    }
+
+    /**
+     * Enables the lazy parsing.
+     * By default, the Excel file is parsed when {@link #build()} is called.
+     * In the lazy parsing, {@link #build()} only records the settings, and the Excel file is parsed when
+     * the {@code Import} operation is executed for the first time. The parsed result is reused by the following
+     * executions, so that the Excel file is parsed at most once per {@code Import} instance.
+     *
+     * <p>Errors in the Excel file are thrown at the execution instead of {@link #build()}.
+     * The settings are copied when {@link #build()} is called, so that the later changes of this builder
+     * do not affect the operation.</p>
+     *
+     * @return the reference to this object
+     */
+    public Builder lazy() {
+      this.lazy = true;
+      return this;
+    }
+
+    /**
+     * Sets the number of rows sent to the database in a JDBC batch.
+     * By default, the rows are inserted one by one, which takes one round trip per row.
+     * If this is set, the rows of each worksheet are sent with
+     * {@link java.sql.PreparedStatement#addBatch()} and {@link java.sql.PreparedStatement#executeBatch()}
+     * every {@code batchSize} rows.
+     *
+     * <p>The values are bound by the {@link BinderConfiguration} of DbSetup as usual,
+     * and the default values and the value generators are also applied.</p>
+     *
+     * @param batchSize the number of rows in a batch, must be positive
+     * @return the reference to this object
+     * @throws IllegalArgumentException if the argument is less than or equal to {@code 0}
+     */
+    public Builder batchSize(int batchSize) {
+      if (batchSize <= 0) {
+        throw new IllegalArgumentException("batchSize must be greater than 0");
+      }
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * Enables the chunked import, which reads and inserts the rows of each worksheet in chunks of the given size.
+     * By default, all the worksheets are read into memory before any row is inserted.
+     * If this is set, the worksheets are read on a background thread when the operation is executed,
+     * and every chunk is inserted with the JDBC batch execution while the next chunk is read.
+     * At most a few chunks are held in memory at the same time, so combined with {@link #streaming()},
+     * the memory does not grow with the height of the worksheets.
+     *
+     * <p>The rows are sent every {@link #batchSize(int)} rows if it is set, otherwise every chunk.
+     * The chunked import cannot be combined with {@link #cached()}, {@link #snapshot(Path)},
+     * {@link #parallel(Executor)}, {@link #orderByForeignKeys()}, {@link #incremental(String, String)}
+     * and the parallel loading, which need all the rows of the worksheets.</p>
+     *
+     * @param chunkSize the number of rows in a chunk, must be positive
+     * @return the reference to this object
+     * @throws IllegalArgumentException if the argument is less than or equal to {@code 0}
+     */
+    public Builder chunked(int chunkSize) {
+      if (chunkSize <= 0) {
+        throw new IllegalArgumentException("chunkSize must be greater than 0");
+      }
+      this.chunkSize = chunkSize;
+      return this;
+    }
+
+    /**
+     * Enables the parallel reading of worksheets on the common {@link ForkJoinPool}.
+     *
+     * @return the reference to this object
+     * @see #parallel(Executor)
+     */
+    public Builder parallel() {
+      return parallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Enables the parallel reading of worksheets on the given executor.
+     * By default, the worksheets are read one by one.
+     * If this is set, each worksheet is converted into rows concurrently on the executor.
+     * The order of the tables to import is kept the same as the order of the worksheets, and if some worksheets
+     * are invalid, the error of the first invalid worksheet is reported.
+     *
+     * <p>Formulas are evaluated one by one before the worksheets are read
+     * because the formula evaluator of Apache POI is not thread-safe.</p>
+     *
+     * @param executor the executor to read worksheets
+     * @return the reference to this object
+     */
+    public Builder parallel(Executor executor) {
+      this.executor = requireNonNull(executor, "executor must not be null");
+      return this;
+    }
+
+    /**
+     * Enables the ordering of tables by foreign keys.
+     * By default, the tables are inserted in the order of the worksheets.
+     * If this is set, the foreign keys between the tables are read with
+     * {@link java.sql.DatabaseMetaData#getImportedKeys(String, String, String)}, and the referenced tables are
+     * inserted before the tables referencing them. The tables which are not related to each other are inserted
+     * in the order of the worksheets.
+     *
+     * <p>The foreign keys are read once per JDBC URL and table, and are reused by the following executions
+     * in the same process. If the foreign keys are circular, the cycles are broken in the order of the worksheets.</p>
+     *
+     * @return the reference to this object
+     */
+    public Builder orderByForeignKeys() {
+      this.orderByForeignKeys = true;
+      return this;
+    }
+
+    /**
+     * Enables the incremental import of the given table.
+     * By default, all the rows of the worksheet are inserted every time.
+     * If this is set, the rows are identified by the value of the given key column, and only the rows added,
+     * changed or removed since the last execution are inserted, updated or deleted.
+     * The first execution in the process deletes all the rows of the table and inserts the worksheet.
+     *
+     * <p>The rows of the last execution are kept in the process-wide {@link DeltaIndex},
+     * so the table must not be modified by the other operations, and must not be deleted before this operation.
+     * The value generators are applied only to the inserted rows.</p>
+     *
+     * @param table     the table name
+     * @param keyColumn the column whose values identify the rows, such as the primary key
+     * @return the reference to this object
+     * @see DeltaIndex
+     */
+    public Builder incremental(String table, String keyColumn) {
+      requireNonNull(table, "table must not be null");
+      requireNonNull(keyColumn, "keyColumn must not be null");
+      keyColumns.put(table, keyColumn);
+      return this;
+    }
+
+    /**
+     * Enables the conversion of values by the SQL types of the table columns.
+     * By default, the numeric cells are given to DbSetup as {@code Double} and the date-formatted cells as
+     * {@code java.util.Date}, and the binders of the {@link BinderConfiguration} convert them for every value.
+     * If this is set, the SQL types of the table columns are read with
+     * {@link java.sql.DatabaseMetaData#getColumns(String, String, String, String)}, and a converter is resolved
+     * for each column once per execution. The values are converted as follows and bound with the typed setters
+     * of {@link java.sql.PreparedStatement}:
+     * <ul>
+     *   <li>integers for the integer columns, and {@code BigDecimal} for the decimal columns</li>
+     *   <li>{@code LocalDate}, {@code LocalTime} and {@code LocalDateTime} for the date and time columns</li>
+     *   <li>strings for the character columns, where the numbers are written in the same way as DbSetup,
+     *       such as {@code 1000.0}</li>
+     * </ul>
+     *
+     * <p>The SQL types are read once per JDBC URL and table, and are reused by the following executions
+     * in the same process. The columns of the other types, the columns of the mixed values, the default values and
+     * the value generators are bound by the {@link BinderConfiguration} as usual.
+     * The rows are sent with the JDBC batch execution if {@link #batchSize(int)} is set, otherwise one by one.</p>
+     *
+     * @return the reference to this object
+     */
+    public Builder convertWithMetadata() {
+      this.convertWithMetadata = true;
+      return this;
+    }
+
+    /**
+     * Sets the loader which inserts the rows of each worksheet.
+     * By default, the rows are inserted by the {@code Insert} operation of DbSetup, or with the JDBC batch execution
+     * if {@link #batchSize(int)} is set.
+     * If this is set, the rows of each worksheet, the default values and the generated values are handed to the
+     * loader, which can use the fast path of the database such as the {@code COPY} command of PostgreSQL.
+     *
+     * <p>The loader replaces the batch execution and the conversion by {@link #convertWithMetadata()}.
+     * With {@link #incremental(String, String)}, the loader is used only when all the rows of the table
+     * are inserted again.</p>
+     *
+     * @param loader the loader to insert the rows
+     * @return the reference to this object
+     * @see BulkLoader#multiRowInsert(int)
+     * @see BulkLoader#postgresCopy()
+     */
+    public Builder loader(BulkLoader loader) {
+      this.loader = requireNonNull(loader, "loader must not be null");
+      return this;
+    }
+
+    /**
+     * Enables the parallel loading of tables over the connections obtained from the given data source.
+     *
+     * @param dataSource  the data source to obtain the connections from
+     * @param parallelism the maximum number of tables loaded at the same time, must be positive
+     * @return the reference to this object
+     * @throws IllegalArgumentException if {@code parallelism} is less than or equal to {@code 0}
+     * @see #parallelLoad(Destination, int)
+     */
+    public Builder parallelLoad(DataSource dataSource, int parallelism) {
+      requireNonNull(dataSource, "dataSource must not be null");
+      return parallelLoad(DataSourceDestination.with(dataSource), parallelism);
+    }
+
+    /**
+     * Enables the parallel loading of tables over the connections obtained from the given destination.
+     * By default, the tables are inserted one by one over the connection the operation is executed with.
+     * If this is set, each table is inserted over its own connection in its own transaction,
+     * and at most {@code parallelism} tables are inserted at the same time.
+     *
+     * <p>The parallel loading has the following behaviors:</p>
+     * <ul>
+     *   <li>The destination must point to the same database as the one the operation is executed with.</li>
+     *   <li>The other connections cannot see the uncommitted changes of the connection the operation is executed
+     *       with, and may be blocked by its locks. So if the connection is in a transaction, which
+     *       {@link com.ninja_squad.dbsetup.DbSetup#launch()} always begins, the operation fails unless
+     *       {@link #commitBeforeParallelLoad()} allows it to commit the transaction before loading.</li>
+     *   <li>If some tables fail to be inserted, the other tables may have already been committed.</li>
+     *   <li>The tables are ordered by the foreign keys as {@link #orderByForeignKeys()} does,
+     *       and the tables referencing other tables are loaded after the referenced tables are committed.</li>
+     * </ul>
+     *
+     * @param destination the destination to obtain the connections from
+     * @param parallelism the maximum number of tables loaded at the same time, must be positive
+     * @return the reference to this object
+     * @throws IllegalArgumentException if {@code parallelism} is less than or equal to {@code 0}
+     */
+    public Builder parallelLoad(Destination destination, int parallelism) {
+      if (parallelism <= 0) {
+        throw new IllegalArgumentException("parallelism must be greater than 0");
+      }
+      this.loadDestination = requireNonNull(destination, "destination must not be null");
+      this.loadParallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Allows the parallel loading to commit the transaction of the connection the operation is executed with
+     * before loading the tables. For example, the tables deleted by the preceding operations are committed
+     * at that point, and are not restored even if the loading fails.
+     * This has no effect unless {@link #parallelLoad(Destination, int)} is set.
+     *
+     * @return the reference to this object
+     */
+    public Builder commitBeforeParallelLoad() {
+      this.commitBeforeLoad = true;
+      return this;
+    }
+
+    /**
+     * Specifies a listener which receives the measurements of the import:
+     * the time taken to parse the Excel file and each worksheet, the numbers of the rows, the cells and
+     * the evaluated formulas, the bytes read, and the time taken to insert each table.
+     * By default, nothing is measured.
+     *
+     * @param listener the listener
+     * @return the reference to this object
+     * @see ImportMetrics
+     * @see JfrImportListener
+     */
+    public Builder listener(ImportListener listener) {
+      this.listener = requireNonNull(listener, "listener must not be null");
+      return this;
+    }
+
     /**
      * Specifies a default value for the given table and column.
      *
@@ -307,10 +1195,14 @@ public final class Import implements Operation {
      * @param column the column name to set the default value
      * @param value  the default value (nullable)
      * @return the reference to this object
+     * @throws IllegalArgumentException if a value generator is already specified for the column
      */
     public Builder withDefaultValue(String table, String column, Object value) {
       requireNonNull(table, "table must not be null");
       requireNonNull(column, "column must not be null");
+      if (valueGenerators.getOrDefault(table, Map.of()).containsKey(column)) {
+        throw new IllegalArgumentException("value generator already specified: " + table + "." + column);
+      }
       defaultValues.computeIfAbsent(table, k -> new LinkedHashMap<>()).put(column, value);
       return this;
     }
@@ -323,14 +1215,38 @@ public final class Import implements Operation {
      * @param column         the column name to set the value generator
      * @param valueGenerator the value generator to use
      * @return the reference to this object
+     * @throws IllegalArgumentException if a default value is already specified for the column
      */
     public Builder withGeneratedValue(String table, String column,
                                       ValueGenerator<?> valueGenerator) {
       requireNonNull(table, "table must not be null");
       requireNonNull(column, "column must not be null");
       requireNonNull(valueGenerator, "valueGenerator must not be null");
+      if (defaultValues.getOrDefault(table, Map.of()).containsKey(column)) {
+        throw new IllegalArgumentException("default value already specified: " + table + "." + column);
+      }
       valueGenerators.computeIfAbsent(table, k -> new LinkedHashMap<>()).put(column, valueGenerator);
       return this;
     }
+
+    /**
+     * Declares the type of the given table and column.
+     * By default, the type of each column is inferred from its first non-blank value,
+     * and is widened if a later value does not fit in it.
+     * If the type is declared, the values are stored in that type and a value of another type is an error.
+     *
+     * @param table  the table name
+     * @param column the column name to declare the type
+     * @param type   the type of the column
+     * @return the reference to this object
+     * @see ColumnType
+     */
+    public Builder withColumnType(String table, String column, ColumnType type) {
+      requireNonNull(table, "table must not be null");
+      requireNonNull(column, "column must not be null");
+      requireNonNull(type, "type must not be null");
+      columnTypes.computeIfAbsent(table, k -> new LinkedHashMap<>()).put(column, type);
+      return this;
+    }
   }
 }
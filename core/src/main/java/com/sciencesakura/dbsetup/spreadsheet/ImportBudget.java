@@ -0,0 +1,57 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The budget of reading a file, shared by all its worksheets: the bytes read from the file and the cells
+ * of the data rows.
+ *
+ * <p>The budget is checked every time a row is read, so that the import fails as soon as the budget is exceeded,
+ * before the rest of the file is read. The worksheets may be read concurrently, so the counters are atomic.</p>
+ */
+final class ImportBudget {
+
+  private final Import.Builder builder;
+
+  private final LongAdder bytes;
+
+  private final AtomicLong cells = new AtomicLong();
+
+  ImportBudget(Import.Builder builder, LongAdder bytes) {
+    this.builder = builder;
+    this.bytes = bytes;
+  }
+
+  /**
+   * Checks the bytes read from the file so far.
+   *
+   * @throws DbSetupRuntimeException if the bytes exceed {@link Import.Builder#maxBytes}
+   */
+  void checkBytes() {
+    var maxBytes = builder.maxBytes;
+    if (maxBytes != 0 && maxBytes < bytes.sum()) {
+      throw new DbSetupRuntimeException("byte budget exceeded: " + builder.location + " is larger than "
+          + maxBytes + " bytes");
+    }
+  }
+
+  /**
+   * Adds the cells of a data row.
+   *
+   * @param n      the number of the cells
+   * @param parser the parser of the worksheet, whose used range is reported if the budget is exceeded
+   * @param row    the 0-based index of the row
+   * @throws DbSetupRuntimeException if the cells exceed {@link Import.Builder#maxCells}
+   */
+  void addCells(int n, SheetParser parser, int row) {
+    var maxCells = builder.maxCells;
+    if (maxCells != 0 && maxCells < cells.addAndGet(n)) {
+      throw new DbSetupRuntimeException("cell budget exceeded: " + builder.location + " has more than "
+          + maxCells + " cells, used range " + parser.usedRange(row));
+    }
+  }
+}
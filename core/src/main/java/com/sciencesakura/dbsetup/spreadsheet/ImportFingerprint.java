@@ -0,0 +1,79 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Computes the fingerprint of an {@code Import} operation.
+ *
+ * <p>The fingerprint is the Base64-encoded SHA-256 digest of the following, so that two operations with the same
+ * fingerprint insert the same rows into the same tables:</p>
+ * <ul>
+ *   <li>the location and the SHA-256 digest of the contents of the Excel file</li>
+ *   <li>the settings which affect parsing, the same as the key of {@link WorkbookCache}</li>
+ *   <li>the table name resolver: the entries of the map, or the identity of the function</li>
+ *   <li>the default values, and the identities of the value generators</li>
+ *   <li>the settings which affect inserting, such as the batch size, the chunk size, the parallelism of the loading,
+ *       the key columns of the incremental import and the bulk loader: its class and {@code toString()}</li>
+ * </ul>
+ *
+ * <p>The functions and the value generators cannot be compared by their behavior, such as the lambdas capturing
+ * different values or the sequences starting at different values, so they are the same only if they are the same
+ * instances. The fingerprint of an operation using them is therefore valid only in the same process.</p>
+ *
+ * <p>The executors, the destination of the parallel loading and the listener are not a part of the fingerprint
+ * because they do not change the inserted rows.</p>
+ */
+final class ImportFingerprint {
+
+  private ImportFingerprint() {
+  }
+
+  static String of(Import.Builder builder) {
+    var loader = builder.loader;
+    var text = new StringBuilder(256)
+        .append(builder.location.toExternalForm()).append('\n')
+        .append(WorkbookCache.digest(builder.location)).append('\n')
+        .append(WorkbookCache.settings(builder)).append('\n')
+        .append(WorkbookCache.resolver(builder)).append('\n')
+        .append(defaultValues(builder)).append('\n')
+        .append(valueGenerators(builder)).append('\n')
+        .append(new TreeMap<>(builder.keyColumns)).append('\n')
+        .append(builder.batchSize).append(',')
+        .append(builder.chunkSize).append(',')
+        .append(builder.loadDestination != null).append(',')
+        .append(builder.loadParallelism).append(',')
+        .append(builder.convertWithMetadata).append(',')
+        .append(builder.orderByForeignKeys).append(',')
+        .append(loader == null ? null : loader.getClass().getName() + ':' + loader);
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(text.toString().getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().encodeToString(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new DbSetupRuntimeException(e);
+    }
+  }
+
+  private static String valueGenerators(Import.Builder builder) {
+    var classes = new TreeMap<String, Map<String, String>>();
+    builder.valueGenerators.forEach((table, generators) -> {
+      var map = new TreeMap<String, String>();
+      generators.forEach((column, generator) -> map.put(column, WorkbookCache.identity(generator)));
+      classes.put(table, map);
+    });
+    return classes.toString();
+  }
+
+  private static String defaultValues(Import.Builder builder) {
+    var sorted = new TreeMap<String, Map<String, Object>>();
+    builder.defaultValues.forEach((table, values) -> sorted.put(table, new TreeMap<>(values)));
+    return sorted.toString();
+  }
+}
@@ -0,0 +1,60 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import java.net.URL;
+
+/**
+ * A listener which receives the measurements of the {@code Import} operation.
+ *
+ * <p>The listener is specified by {@link Import.Builder#listener(ImportListener)}.
+ * The worksheets are reported when the Excel file is parsed, so they are not reported if the parsed contents are
+ * reused from {@link WorkbookCache} or the snapshot. The tables are reported every time the operation is executed.</p>
+ *
+ * <p>The methods may be called concurrently if the worksheets are read in parallel or the tables are loaded in
+ * parallel, so the implementations must be thread-safe.</p>
+ *
+ * @author sciencesakura
+ * @see ImportMetrics
+ * @see JfrImportListener
+ */
+public interface ImportListener {
+
+  /**
+   * Called when the Excel file has been parsed.
+   *
+   * @param location the location of the Excel file
+   * @param bytes    the number of bytes read from the Excel file
+   * @param nanos    the time taken to open and parse the Excel file in nanoseconds
+   */
+  default void workbookParsed(URL location, long bytes, long nanos) {
+  }
+
+  /**
+   * Called when a worksheet has been parsed.
+   *
+   * @param sheet            the worksheet name
+   * @param usedRange        the range from the header row to the last data row, such as {@code Sheet1!A1:J100}
+   * @param rows             the number of the data rows
+   * @param cells            the number of the cells in the data rows
+   * @param formulas         the number of the formulas evaluated
+   * @param formulaCacheHits the number of the formula results reused from the cache of the formula evaluator
+   *                         instead of evaluating them again, with {@link FormulaMode#EVALUATE_WITH_CACHE}
+   * @param cachedFormulas   the number of the formulas whose results cached in the file were used
+   *                         instead of evaluating them
+   * @param nanos            the time taken to parse the worksheet in nanoseconds
+   */
+  default void sheetParsed(String sheet, String usedRange, int rows, long cells, int formulas, int formulaCacheHits,
+                           int cachedFormulas, long nanos) {
+  }
+
+  /**
+   * Called when the rows of a table have been inserted.
+   *
+   * @param table the table name
+   * @param rows  the number of the rows
+   * @param nanos the time taken to insert the rows in nanoseconds
+   */
+  default void tableInserted(String table, int rows, long nanos) {
+  }
+}
@@ -0,0 +1,294 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link ImportListener} which keeps the measurements in memory.
+ *
+ * <pre>{@code
+ * var metrics = new ImportMetrics();
+ * var operation = excel("test-data.xlsx").listener(metrics).build();
+ * new DbSetup(destination, operation).launch();
+ * System.out.println(metrics);
+ * }</pre>
+ *
+ * @author sciencesakura
+ */
+public final class ImportMetrics implements ImportListener {
+
+  private final Object lock = new Object();
+
+  private final List<Sheet> sheets = new ArrayList<>();
+
+  private final List<Table> tables = new ArrayList<>();
+
+  private long bytesRead;
+
+  private long parseNanos;
+
+  /**
+   * Creates a new empty {@code ImportMetrics}.
+   */
+  public ImportMetrics() {
+  }
+
+  @Override
+  public void workbookParsed(URL location, long bytes, long nanos) {
+    synchronized (lock) {
+      bytesRead += bytes;
+      parseNanos += nanos;
+    }
+  }
+
+  @Override
+  public void sheetParsed(String sheet, String usedRange, int rows, long cells, int formulas, int formulaCacheHits,
+                          int cachedFormulas, long nanos) {
+    synchronized (lock) {
+      sheets.add(new Sheet(sheet, usedRange, rows, cells, formulas, formulaCacheHits, cachedFormulas, nanos));
+    }
+  }
+
+  @Override
+  public void tableInserted(String table, int rows, long nanos) {
+    synchronized (lock) {
+      tables.add(new Table(table, rows, nanos));
+    }
+  }
+
+  /**
+   * Returns the total number of bytes read from the Excel files.
+   *
+   * @return the number of bytes
+   */
+  public long bytesRead() {
+    synchronized (lock) {
+      return bytesRead;
+    }
+  }
+
+  /**
+   * Returns the total time taken to open and parse the Excel files.
+   *
+   * @return the time in nanoseconds
+   */
+  public long parseNanos() {
+    synchronized (lock) {
+      return parseNanos;
+    }
+  }
+
+  /**
+   * Returns the parsed worksheets in the order they were reported.
+   *
+   * @return the snapshot of the measurements of the worksheets
+   */
+  public List<Sheet> sheets() {
+    synchronized (lock) {
+      return List.copyOf(sheets);
+    }
+  }
+
+  /**
+   * Returns the inserted tables in the order they were reported.
+   *
+   * @return the snapshot of the measurements of the tables
+   */
+  public List<Table> tables() {
+    synchronized (lock) {
+      return List.copyOf(tables);
+    }
+  }
+
+  /**
+   * Removes all the measurements.
+   */
+  public void clear() {
+    synchronized (lock) {
+      sheets.clear();
+      tables.clear();
+      bytesRead = 0;
+      parseNanos = 0;
+    }
+  }
+
+  @Override
+  public String toString() {
+    synchronized (lock) {
+      return "ImportMetrics{bytesRead=" + bytesRead + ", parseNanos=" + parseNanos
+          + ", sheets=" + sheets + ", tables=" + tables + '}';
+    }
+  }
+
+  /**
+   * The measurements of a parsed worksheet.
+   *
+   * @author sciencesakura
+   */
+  public static final class Sheet {
+
+    private final String name;
+
+    private final String usedRange;
+
+    private final int rows;
+
+    private final long cells;
+
+    private final int formulas;
+
+    private final int formulaCacheHits;
+
+    private final int cachedFormulas;
+
+    private final long nanos;
+
+    private Sheet(String name, String usedRange, int rows, long cells, int formulas, int formulaCacheHits,
+                  int cachedFormulas, long nanos) {
+      this.name = name;
+      this.usedRange = usedRange;
+      this.rows = rows;
+      this.cells = cells;
+      this.formulas = formulas;
+      this.formulaCacheHits = formulaCacheHits;
+      this.cachedFormulas = cachedFormulas;
+      this.nanos = nanos;
+    }
+
+    /**
+     * Returns the worksheet name.
+     *
+     * @return the worksheet name
+     */
+    public String name() {
+      return name;
+    }
+
+    /**
+     * Returns the range from the header row to the last data row, such as {@code Sheet1!A1:J100}.
+     *
+     * @return the used range of the worksheet
+     */
+    public String usedRange() {
+      return usedRange;
+    }
+
+    /**
+     * Returns the number of the data rows.
+     *
+     * @return the number of the data rows
+     */
+    public int rows() {
+      return rows;
+    }
+
+    /**
+     * Returns the number of the cells in the data rows.
+     *
+     * @return the number of the cells
+     */
+    public long cells() {
+      return cells;
+    }
+
+    /**
+     * Returns the number of the formulas evaluated.
+     *
+     * @return the number of the formulas
+     */
+    public int formulas() {
+      return formulas;
+    }
+
+    /**
+     * Returns the number of the formula results reused from the cache of the formula evaluator
+     * instead of evaluating them again.
+     *
+     * @return the number of the cache hits
+     * @see FormulaMode#EVALUATE_WITH_CACHE
+     */
+    public int formulaCacheHits() {
+      return formulaCacheHits;
+    }
+
+    /**
+     * Returns the number of the formulas whose results cached in the file were used instead of evaluating them.
+     *
+     * @return the number of the formulas
+     */
+    public int cachedFormulas() {
+      return cachedFormulas;
+    }
+
+    /**
+     * Returns the time taken to parse the worksheet.
+     *
+     * @return the time in nanoseconds
+     */
+    public long nanos() {
+      return nanos;
+    }
+
+    @Override
+    public String toString() {
+      return "Sheet{name=" + name + ", usedRange=" + usedRange + ", rows=" + rows + ", cells=" + cells
+          + ", formulas=" + formulas + ", formulaCacheHits=" + formulaCacheHits + ", cachedFormulas=" + cachedFormulas
+          + ", nanos=" + nanos + '}';
+    }
+  }
+
+  /**
+   * The measurements of an inserted table.
+   *
+   * @author sciencesakura
+   */
+  public static final class Table {
+
+    private final String name;
+
+    private final int rows;
+
+    private final long nanos;
+
+    private Table(String name, int rows, long nanos) {
+      this.name = name;
+      this.rows = rows;
+      this.nanos = nanos;
+    }
+
+    /**
+     * Returns the table name.
+     *
+     * @return the table name
+     */
+    public String name() {
+      return name;
+    }
+
+    /**
+     * Returns the number of the inserted rows.
+     *
+     * @return the number of the rows
+     */
+    public int rows() {
+      return rows;
+    }
+
+    /**
+     * Returns the time taken to insert the rows.
+     *
+     * @return the time in nanoseconds
+     */
+    public long nanos() {
+      return nanos;
+    }
+
+    @Override
+    public String toString() {
+      return "Table{name=" + name + ", rows=" + rows + ", nanos=" + nanos + '}';
+    }
+  }
+}
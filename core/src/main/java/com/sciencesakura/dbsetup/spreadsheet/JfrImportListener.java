@@ -0,0 +1,138 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import java.net.URL;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An {@link ImportListener} which emits the measurements as JDK Flight Recorder events.
+ *
+ * <p>The events are {@code com.sciencesakura.dbsetup.spreadsheet.WorkbookParsed},
+ * {@code com.sciencesakura.dbsetup.spreadsheet.SheetParsed} and
+ * {@code com.sciencesakura.dbsetup.spreadsheet.TableInserted}. If they are not enabled in the recording,
+ * this listener does nothing but checking whether they are enabled.</p>
+ *
+ * @author sciencesakura
+ */
+public final class JfrImportListener implements ImportListener {
+
+  /**
+   * Creates a new {@code JfrImportListener}.
+   */
+  public JfrImportListener() {
+  }
+
+  @Override
+  public void workbookParsed(URL location, long bytes, long nanos) {
+    var event = new WorkbookParsed();
+    if (event.shouldCommit()) {
+      event.location = location.toExternalForm();
+      event.bytes = bytes;
+      event.time = nanos;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void sheetParsed(String sheet, String usedRange, int rows, long cells, int formulas, int formulaCacheHits,
+                          int cachedFormulas, long nanos) {
+    var event = new SheetParsed();
+    if (event.shouldCommit()) {
+      event.sheet = sheet;
+      event.usedRange = usedRange;
+      event.rows = rows;
+      event.cells = cells;
+      event.formulas = formulas;
+      event.formulaCacheHits = formulaCacheHits;
+      event.cachedFormulas = cachedFormulas;
+      event.time = nanos;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void tableInserted(String table, int rows, long nanos) {
+    var event = new TableInserted();
+    if (event.shouldCommit()) {
+      event.table = table;
+      event.rows = rows;
+      event.time = nanos;
+      event.commit();
+    }
+  }
+
+  @Name("com.sciencesakura.dbsetup.spreadsheet.WorkbookParsed")
+  @Label("Workbook Parsed")
+  @Category("DbSetup Spreadsheet")
+  private static final class WorkbookParsed extends Event {
+
+    @Label("Location")
+    @Nullable String location;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytes;
+
+    @Label("Parse Time")
+    @Timespan
+    long time;
+  }
+
+  @Name("com.sciencesakura.dbsetup.spreadsheet.SheetParsed")
+  @Label("Sheet Parsed")
+  @Category("DbSetup Spreadsheet")
+  private static final class SheetParsed extends Event {
+
+    @Label("Sheet")
+    @Nullable String sheet;
+
+    @Label("Used Range")
+    @Nullable String usedRange;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Cells")
+    long cells;
+
+    @Label("Formulas")
+    @Description("The number of the formulas evaluated")
+    int formulas;
+
+    @Label("Formula Cache Hits")
+    @Description("The number of the formula results reused from the cache of the formula evaluator")
+    int formulaCacheHits;
+
+    @Label("Cached Formulas")
+    @Description("The number of the formulas whose cached results were used instead of evaluating them")
+    int cachedFormulas;
+
+    @Label("Parse Time")
+    @Timespan
+    long time;
+  }
+
+  @Name("com.sciencesakura.dbsetup.spreadsheet.TableInserted")
+  @Label("Table Inserted")
+  @Category("DbSetup Spreadsheet")
+  private static final class TableInserted extends Event {
+
+    @Label("Table")
+    @Nullable String table;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Insert Time")
+    @Timespan
+    long time;
+  }
+}
@@ -0,0 +1,65 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The location of an Excel file held in memory.
+ *
+ * <p>The contents are given as a {@code memory:} URL whose path is the SHA-256 digest of the contents,
+ * so that the cache, the snapshot and the fingerprint of the {@code Import} operation work in the same way
+ * as the files on the classpath.</p>
+ */
+final class MemoryLocation extends URLStreamHandler {
+
+  static final String PROTOCOL = "memory";
+
+  private final byte[] contents;
+
+  private MemoryLocation(byte[] contents) {
+    this.contents = contents;
+  }
+
+  static URL of(byte[] contents) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(contents);
+      var path = new StringBuilder(digest.length * 2);
+      for (var b : digest) {
+        path.append(Character.forDigit(b >> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return new URL(null, PROTOCOL + ':' + path, new MemoryLocation(contents));
+    } catch (NoSuchAlgorithmException | MalformedURLException e) {
+      throw new DbSetupRuntimeException(e);
+    }
+  }
+
+  @Override
+  protected URLConnection openConnection(URL u) {
+    return new URLConnection(u) {
+
+      @Override
+      public void connect() {
+        connected = true;
+      }
+
+      @Override
+      public InputStream getInputStream() {
+        return new ByteArrayInputStream(contents);
+      }
+
+      @Override
+      public long getContentLengthLong() {
+        return contents.length;
+      }
+    };
+  }
+}
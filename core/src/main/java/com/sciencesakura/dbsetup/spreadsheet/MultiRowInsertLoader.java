@@ -0,0 +1,86 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.bind.Binder;
+import com.ninja_squad.dbsetup.bind.BinderConfiguration;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * A loader which inserts several rows with a single {@code INSERT ... VALUES (...), (...)} statement.
+ *
+ * <p>The binders are resolved from the parameters of the first row, and are reused for the following rows
+ * in the statement because their parameters are the same columns.</p>
+ */
+final class MultiRowInsertLoader implements BulkLoader {
+
+  private final int rowsPerStatement;
+
+  MultiRowInsertLoader(int rowsPerStatement) {
+    this.rowsPerStatement = rowsPerStatement;
+  }
+
+  @Override
+  public void load(Connection connection, BinderConfiguration configuration, String table, String[] columns,
+                   Rows rows) throws SQLException {
+    var size = rows.size();
+    if (size == 0) {
+      return;
+    }
+    var count = Math.min(rowsPerStatement, size);
+    try (var stmt = connection.prepareStatement(sql(table, columns, count))) {
+      var binders = BatchInsert.binders(BatchInsert.metadata(stmt), configuration, columns.length);
+      var r = 0;
+      for (; r + count <= size; r += count) {
+        bind(stmt, binders, rows, r, count);
+        stmt.executeUpdate();
+      }
+      if (r != size) {
+        try (var rest = connection.prepareStatement(sql(table, columns, size - r))) {
+          bind(rest, binders, rows, r, size - r);
+          rest.executeUpdate();
+        }
+      }
+    }
+  }
+
+  private static void bind(PreparedStatement stmt, Binder[] binders, Rows rows, int start, int count)
+      throws SQLException {
+    var width = binders.length;
+    var index = 1;
+    for (var r = start; r < start + count; r++) {
+      for (var c = 0; c < width; c++) {
+        binders[c].bind(stmt, index++, rows.get(r, c));
+      }
+    }
+  }
+
+  private static String sql(String table, String[] columns, int count) {
+    var sql = new StringBuilder("insert into ").append(table).append(" (");
+    for (var i = 0; i < columns.length; i++) {
+      if (i != 0) {
+        sql.append(", ");
+      }
+      sql.append(columns[i]);
+    }
+    sql.append(") values ");
+    for (var r = 0; r < count; r++) {
+      sql.append(r == 0 ? "(" : ", (");
+      for (var i = 0; i < columns.length; i++) {
+        if (i != 0) {
+          sql.append(", ");
+        }
+        sql.append('?');
+      }
+      sql.append(')');
+    }
+    return sql.toString();
+  }
+
+  @Override
+  public String toString() {
+    return "multi-row insert [rowsPerStatement=" + rowsPerStatement + ']';
+  }
+}
@@ -0,0 +1,470 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Reads the OpenDocument Spreadsheet (.ods) file.
+ *
+ * <p>The {@code content.xml} entry is read directly from the zip file with the StAX streaming parser,
+ * and every row is given to {@link SheetParser} as soon as it is read, without building a document tree.
+ * The tables are read in the order of the file, so that they cannot be read concurrently.
+ * The file on the file system is opened with {@link ZipFile}, which reads only the needed entry.</p>
+ *
+ * <p>The semantics are the same as the streaming mode of the Excel files: the hidden tables are skipped,
+ * and the formulas are not evaluated but the results saved in the file are used. The repeated rows and cells
+ * are expanded, except the trailing empty ones which LibreOffice writes to fill the sheet.</p>
+ */
+final class OdsReader implements SpreadsheetSource {
+
+  private static final String TABLE = "urn:oasis:names:tc:opendocument:xmlns:table:1.0";
+
+  private static final String OFFICE = "urn:oasis:names:tc:opendocument:xmlns:office:1.0";
+
+  private static final String TEXT = "urn:oasis:names:tc:opendocument:xmlns:text:1.0";
+
+  private static final String STYLE = "urn:oasis:names:tc:opendocument:xmlns:style:1.0";
+
+  private static final String CALCEXT = "urn:org:documentfoundation:names:experimental:calc:xmlns:calcext:1.0";
+
+  private static final Object ERROR = new Object();
+
+  private final Closeable zip;
+
+  private final XMLStreamReader xml;
+
+  private final Set<String> hiddenStyles = new HashSet<>();
+
+  private final ZoneId zone = ZoneId.systemDefault();
+
+  private final StringBuilder text = new StringBuilder(64);
+
+  private boolean inTable;
+
+  private OdsReader(Closeable zip, XMLStreamReader xml) {
+    this.zip = zip;
+    this.xml = xml;
+  }
+
+  static SpreadsheetSource open(Import.Builder builder, LongAdder bytes) throws IOException {
+    var location = builder.location;
+    Closeable zip;
+    InputStream in;
+    if ("file".equals(location.getProtocol())) {
+      File file;
+      try {
+        file = new File(location.toURI());
+      } catch (URISyntaxException e) {
+        throw new IOException(e);
+      }
+      bytes.add(file.length());
+      var zipFile = new ZipFile(file);
+      var entry = zipFile.getEntry("content.xml");
+      if (entry == null) {
+        zipFile.close();
+        throw new IOException("content.xml not found: " + location);
+      }
+      zip = zipFile;
+      in = zipFile.getInputStream(entry);
+    } else {
+      var zipStream = new ZipInputStream(new OperationBuilder.CountingInputStream(location.openStream(), bytes));
+      var entry = zipStream.getNextEntry();
+      while (entry != null && !"content.xml".equals(entry.getName())) {
+        entry = zipStream.getNextEntry();
+      }
+      if (entry == null) {
+        zipStream.close();
+        throw new IOException("content.xml not found: " + location);
+      }
+      zip = zipStream;
+      in = zipStream;
+    }
+    try {
+      var factory = XMLInputFactory.newFactory();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+      return new OdsReader(zip, factory.createXMLStreamReader(in));
+    } catch (XMLStreamException e) {
+      zip.close();
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  @Nullable
+  public Sheet next() throws IOException {
+    try {
+      if (inTable) {
+        // the table has not been opened
+        skip();
+        inTable = false;
+      }
+      while (xml.hasNext()) {
+        if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+          continue;
+        }
+        if (is(STYLE, "style")) {
+          style();
+        } else if (is(TABLE, "table")) {
+          var sheetName = xml.getAttributeValue(TABLE, "name");
+          var styleName = xml.getAttributeValue(TABLE, "style-name");
+          if (sheetName == null || styleName != null && hiddenStyles.contains(styleName)) {
+            skip();
+            continue;
+          }
+          inTable = true;
+          return new Sheet() {
+
+            @Override
+            public String name() {
+              return sheetName;
+            }
+
+            @Override
+            public Cursor open() {
+              inTable = false;
+              return new TableCursor(sheetName);
+            }
+          };
+        }
+      }
+      return null;
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public boolean concurrent() {
+    // the tables are read in one pass of content.xml
+    return false;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      xml.close();
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    } finally {
+      zip.close();
+    }
+  }
+
+  /**
+   * Collects the names of the automatic table styles which hide the tables.
+   */
+  private void style() throws XMLStreamException {
+    var name = xml.getAttributeValue(STYLE, "name");
+    if (!"table".equals(xml.getAttributeValue(STYLE, "family"))) {
+      return;
+    }
+    var depth = 1;
+    while (0 < depth) {
+      var event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+        if (is(STYLE, "table-properties") && "false".equals(xml.getAttributeValue(TABLE, "display"))) {
+          hiddenStyles.add(name);
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  /**
+   * Reads the rows of the current table, and moves to the end of the table.
+   */
+  private void table(OdsRow row, Predicate<SheetRow> action) throws XMLStreamException {
+    var accepting = true;
+    while (true) {
+      var event = xml.next();
+      if (event == XMLStreamConstants.END_ELEMENT && is(TABLE, "table")) {
+        return;
+      }
+      if (event != XMLStreamConstants.START_ELEMENT) {
+        continue;
+      }
+      if (!accepting || !is(TABLE, "table-row")) {
+        // the columns, and the rows after the end of the data rows
+        if (is(TABLE, "table-row")) {
+          skip();
+        }
+        continue;
+      }
+      var repeated = repeated("number-rows-repeated");
+      row(row);
+      if (row.lastCellNum == 0) {
+        // the empty rows are the same as the missing rows of the Excel files
+        row.index += repeated;
+        continue;
+      }
+      for (var i = 0; i < repeated && accepting; i++) {
+        accepting = action.test(row);
+        row.index++;
+      }
+    }
+  }
+
+  private void row(OdsRow row) throws XMLStreamException {
+    row.clear();
+    var column = 0;
+    while (true) {
+      var event = xml.next();
+      if (event == XMLStreamConstants.END_ELEMENT && is(TABLE, "table-row")) {
+        return;
+      }
+      if (event != XMLStreamConstants.START_ELEMENT) {
+        continue;
+      }
+      if (is(TABLE, "table-cell") || is(TABLE, "covered-table-cell")) {
+        var repeated = repeated("number-columns-repeated");
+        var formula = xml.getAttributeValue(TABLE, "formula") != null;
+        var value = cell();
+        if (value != null) {
+          row.set(column, repeated, value, formula);
+        }
+        column += repeated;
+      } else {
+        skip();
+      }
+    }
+  }
+
+  /**
+   * Reads the value of the current cell, and moves to the end of the cell.
+   */
+  @Nullable
+  private Object cell() throws XMLStreamException {
+    var type = xml.getAttributeValue(OFFICE, "value-type");
+    var error = "error".equals(xml.getAttributeValue(CALCEXT, "value-type"));
+    Object value = null;
+    if (type != null) {
+      switch (type) {
+        case "float":
+        case "percentage":
+        case "currency":
+          value = Double.valueOf(xml.getAttributeValue(OFFICE, "value"));
+          break;
+        case "date":
+          value = date(xml.getAttributeValue(OFFICE, "date-value"));
+          break;
+        case "time":
+          value = time(xml.getAttributeValue(OFFICE, "time-value"));
+          break;
+        case "boolean":
+          value = Boolean.valueOf(xml.getAttributeValue(OFFICE, "boolean-value"));
+          break;
+        default:
+          value = xml.getAttributeValue(OFFICE, "string-value");
+          break;
+      }
+    }
+    var content = content();
+    if (error) {
+      return ERROR;
+    }
+    if (value == null && "string".equals(type)) {
+      return content;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the text of the paragraphs of the current cell, and moves to the end of the cell.
+   */
+  private String content() throws XMLStreamException {
+    text.setLength(0);
+    var paragraphs = 0;
+    var depth = 1;
+    while (0 < depth) {
+      var event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        if (is(OFFICE, "annotation")) {
+          skip();
+          continue;
+        }
+        depth++;
+        if (is(TEXT, "p") && 0 < paragraphs++) {
+          text.append('\n');
+        } else if (is(TEXT, "s")) {
+          var c = xml.getAttributeValue(TEXT, "c");
+          text.append(" ".repeat(c == null ? 1 : Integer.parseInt(c)));
+        } else if (is(TEXT, "tab")) {
+          text.append('\t');
+        } else if (is(TEXT, "line-break")) {
+          text.append('\n');
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      } else if (event == XMLStreamConstants.CHARACTERS && 1 < depth) {
+        text.append(xml.getText());
+      }
+    }
+    return text.toString();
+  }
+
+  private Date date(String value) {
+    try {
+      var dateTime = value.indexOf('T') < 0 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+      return Date.from(dateTime.atZone(zone).toInstant());
+    } catch (DateTimeParseException e) {
+      throw new DbSetupRuntimeException("invalid date value: " + value, e);
+    }
+  }
+
+  private static Date time(String value) {
+    try {
+      // the same as the time cells of the Excel files, which are the fractions of the day
+      return DateUtil.getJavaDate(Duration.parse(value).toNanos() / 86_400_000_000_000.0);
+    } catch (DateTimeParseException e) {
+      throw new DbSetupRuntimeException("invalid time value: " + value, e);
+    }
+  }
+
+  private int repeated(String attribute) {
+    var value = xml.getAttributeValue(TABLE, attribute);
+    return value == null ? 1 : Integer.parseInt(value);
+  }
+
+  private boolean is(String namespace, String localName) {
+    return localName.equals(xml.getLocalName()) && namespace.equals(xml.getNamespaceURI());
+  }
+
+  /**
+   * Moves to the end of the current element.
+   */
+  private void skip() throws XMLStreamException {
+    var depth = 1;
+    while (0 < depth) {
+      var event = xml.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private final class TableCursor implements Cursor {
+
+    private final OdsRow row;
+
+    TableCursor(String sheetName) {
+      row = new OdsRow(sheetName);
+    }
+
+    @Override
+    public void read(Predicate<SheetRow> action) throws IOException {
+      try {
+        table(row, action);
+      } catch (XMLStreamException e) {
+        throw new IOException(e);
+      }
+    }
+
+    @Override
+    public int cachedFormulas() {
+      return row.cachedFormulas;
+    }
+  }
+
+  private static final class OdsRow implements SheetRow {
+
+    private final String sheetName;
+
+    private @Nullable Object[] cells = new Object[16];
+
+    private boolean[] formulas = new boolean[16];
+
+    private int index;
+
+    private int lastCellNum;
+
+    private int cachedFormulas;
+
+    OdsRow(String sheetName) {
+      this.sheetName = sheetName;
+    }
+
+    void clear() {
+      Arrays.fill(cells, 0, lastCellNum, null);
+      Arrays.fill(formulas, 0, lastCellNum, false);
+      lastCellNum = 0;
+    }
+
+    void set(int column, int repeated, Object value, boolean formula) {
+      var end = column + repeated;
+      if (cells.length < end) {
+        cells = Arrays.copyOf(cells, Math.max(end, cells.length * 2));
+        formulas = Arrays.copyOf(formulas, cells.length);
+      }
+      Arrays.fill(cells, column, end, value);
+      Arrays.fill(formulas, column, end, formula);
+      lastCellNum = end;
+    }
+
+    @Override
+    public int index() {
+      return index;
+    }
+
+    @Override
+    public int lastCellNum() {
+      return lastCellNum;
+    }
+
+    @Override
+    @Nullable
+    public Object value(int column) {
+      if (lastCellNum <= column) {
+        return null;
+      }
+      var value = cells[column];
+      if (formulas[column]) {
+        cachedFormulas++;
+      }
+      if (value == ERROR) {
+        throw new DbSetupRuntimeException("error value contained: " + OperationBuilder.a1(sheetName, index, column));
+      }
+      return value;
+    }
+
+    @Override
+    public int nextColumn(int column) {
+      for (var c = column; c < lastCellNum; c++) {
+        if (cells[c] != null) {
+          return c;
+        }
+      }
+      return lastCellNum;
+    }
+  }
+}
@@ -3,20 +3,24 @@
 package com.sciencesakura.dbsetup.spreadsheet;
 
 import com.ninja_squad.dbsetup.DbSetupRuntimeException;
-import com.ninja_squad.dbsetup.Operations;
 import com.ninja_squad.dbsetup.generator.ValueGenerator;
+import com.ninja_squad.dbsetup.generator.ValueGenerators;
 import com.ninja_squad.dbsetup.operation.Insert;
 import com.ninja_squad.dbsetup.operation.Operation;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.DateUtil;
-import org.apache.poi.ss.usermodel.FormulaEvaluator;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.apache.poi.ss.util.CellReference;
 import org.jspecify.annotations.Nullable;
 
@@ -26,47 +30,185 @@ final class OperationBuilder {
   }
 
   static Operation build(Import.Builder builder) {
-    try (var workbook = WorkbookFactory.create(builder.location.openStream())) {
-      var operations = new ArrayList<Operation>(workbook.getNumberOfSheets());
-      var evaluator = workbook.getCreationHelper().createFormulaEvaluator();
-      for (var i = 0; i < workbook.getNumberOfSheets(); i++) {
-        if (workbook.isSheetHidden(i) || workbook.isSheetVeryHidden(i)) {
-          continue;
-        }
-        var sheet = workbook.getSheetAt(i);
-        var sheetName = sheet.getSheetName();
-        if (isExcluded(builder.include, builder.exclude, sheetName)) {
-          continue;
-        }
-        var rowIndex = builder.top;
-        var row = sheet.getRow(rowIndex);
-        if (row == null) {
-          throw new DbSetupRuntimeException("header row not found: " + sheetName + '[' + rowIndex + ']');
-        }
-        var width = row.getLastCellNum() - builder.left;
-        if (width <= 0) {
-          throw new DbSetupRuntimeException("header row not found: " + sheetName + '[' + rowIndex + ']');
-        }
-        var tableName = builder.resolver.apply(sheetName);
-        if (tableName == null) {
-          throw new DbSetupRuntimeException("could not resolve table name: " + sheetName);
-        }
-        var ib = Insert.into(tableName).columns(columns(row, builder.left, width, evaluator));
-        setDefaultValues(ib, builder.defaultValues, tableName);
-        setValueGenerators(ib, builder.valueGenerators, tableName);
-        rowIndex += builder.skipAfterHeader;
-        while ((row = sheet.getRow(++rowIndex)) != null) {
-          ib.values(values(row, builder.left, width, evaluator));
-        }
-        operations.add(ib.build());
+    if (builder.chunkSize != 0) {
+      // the worksheets are read when the operation is executed
+      return new ChunkedImport(builder);
+    }
+    var sheets = builder.cached ? WorkbookCache.get(builder) : read(builder);
+    var tables = new ArrayList<String>(sheets.size());
+    var rows = new int[sheets.size()];
+    var operations = new ArrayList<Operation>(sheets.size());
+    for (var sheet : sheets) {
+      var tableName = builder.resolver.apply(sheet.name);
+      if (tableName == null) {
+        throw new DbSetupRuntimeException("could not resolve table name: " + sheet.name);
+      }
+      rows[tables.size()] = sheet.rowCount;
+      tables.add(tableName);
+      operations.add(insert(tableName, sheet, builder));
+    }
+    return new TableOperations(builder, tables, rows, operations);
+  }
+
+  static List<SheetData> read(Import.Builder builder) {
+    var snapshot = builder.snapshot;
+    return snapshot == null ? parse(builder) : Snapshot.read(builder, snapshot);
+  }
+
+  static List<SheetData> parse(Import.Builder builder) {
+    return parse(builder, null);
+  }
+
+  /**
+   * Reads the worksheets.
+   *
+   * @param chunks the consumer of the chunks of the worksheets, or {@code null} to read the worksheets as a whole
+   * @return the worksheets, or the last chunks of the worksheets if the consumer of the chunks is given
+   */
+  static List<SheetData> parse(Import.Builder builder, @Nullable Consumer<SheetData> chunks) {
+    var start = System.nanoTime();
+    var bytes = new LongAdder();
+    List<SheetData> sheets;
+    var budget = builder.maxBytes == 0 && builder.maxCells == 0 ? null : new ImportBudget(builder, bytes);
+    try (var source = SpreadsheetSource.of(builder).open(builder, bytes)) {
+      sheets = parse(builder, source, chunks, budget);
+    } catch (IOException e) {
+      throw new DbSetupRuntimeException("failed to open " + builder.location, e);
+    }
+    var listener = builder.listener;
+    if (listener != null) {
+      listener.workbookParsed(builder.location, bytes.sum(), System.nanoTime() - start);
+    }
+    return sheets;
+  }
+
+  private static List<SheetData> parse(Import.Builder builder, SpreadsheetSource source,
+                                       @Nullable Consumer<SheetData> chunks, @Nullable ImportBudget budget)
+      throws IOException {
+    if (budget != null) {
+      // the size of the file on the file system is known before reading
+      budget.checkBytes();
+    }
+    var executor = source.concurrent() ? builder.executor : null;
+    var tasks = new ArrayList<Supplier<SheetData>>();
+    var sheets = new ArrayList<SheetData>();
+    for (var sheet = source.next(); sheet != null; sheet = source.next()) {
+      var sheetName = sheet.name();
+      if (isExcluded(builder.include, builder.exclude, sheetName)) {
+        continue;
+      }
+      var cursor = sheet.open();
+      if (executor == null) {
+        // the cursor of the sequential source must be read before the next worksheet
+        sheets.add(parseSheet(builder, sheetName, cursor, chunks, budget));
+      } else {
+        tasks.add(() -> parseSheet(builder, sheetName, cursor, chunks, budget));
+      }
+    }
+    return executor == null ? sheets : invokeAll(tasks, executor);
+  }
+
+  private static SheetData parseSheet(Import.Builder builder, String sheetName, SpreadsheetSource.Cursor cursor,
+                                      @Nullable Consumer<SheetData> chunks, @Nullable ImportBudget budget) {
+    var start = System.nanoTime();
+    var parser = new SheetParser(builder, sheetName, chunks, budget);
+    try {
+      if (budget == null) {
+        cursor.read(parser::accept);
+      } else {
+        cursor.read(row -> {
+          budget.checkBytes();
+          return parser.accept(row);
+        });
       }
-      return Operations.sequenceOf(operations);
     } catch (IOException e) {
       throw new DbSetupRuntimeException("failed to open " + builder.location, e);
     }
+    return sheetParsed(builder, parser, cursor, start);
+  }
+
+  /**
+   * Finishes the parser, reports the parsed worksheet to the listener, and returns the result of the parser.
+   */
+  private static SheetData sheetParsed(Import.Builder builder, SheetParser parser, SpreadsheetSource.Cursor cursor,
+                                       long start) {
+    var sheet = parser.finish();
+    var listener = builder.listener;
+    if (listener != null) {
+      var rows = parser.rowCount();
+      listener.sheetParsed(sheet.name, parser.usedRange(), rows, (long) rows * sheet.columns.length,
+          cursor.formulas(), cursor.formulaCacheHits(), cursor.cachedFormulas(), System.nanoTime() - start);
+    }
+    return sheet;
   }
 
-  private static boolean isExcluded(Pattern @Nullable [] include, Pattern @Nullable [] exclude, String sheetName) {
+  /**
+   * Runs the given tasks and returns their results in the same order as the tasks.
+   *
+   * <p>If the executor is {@code null}, the tasks are run one by one in the current thread.
+   * Otherwise the tasks are run concurrently on the executor, and this method waits for all of them to complete.
+   * If some tasks fail, the exception of the first failed task in order is thrown,
+   * so that the same error is reported as the sequential reading.</p>
+   */
+  static <T> List<T> invokeAll(List<Supplier<T>> tasks, @Nullable Executor executor) {
+    var results = new ArrayList<T>(tasks.size());
+    if (executor == null) {
+      for (var task : tasks) {
+        results.add(task.get());
+      }
+      return results;
+    }
+    var futures = new ArrayList<CompletableFuture<T>>(tasks.size());
+    for (var task : tasks) {
+      futures.add(CompletableFuture.supplyAsync(task, executor));
+    }
+    RuntimeException failure = null;
+    for (var future : futures) {
+      try {
+        results.add(future.join());
+      } catch (CompletionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return results;
+  }
+
+  private static Operation insert(String tableName, SheetData sheet, Import.Builder builder) {
+    var keyColumn = builder.keyColumns.get(tableName);
+    if (keyColumn != null) {
+      var defaultValues = builder.defaultValues.getOrDefault(tableName, Map.of());
+      var batchSize = builder.batchSize == 0 ? 1 : builder.batchSize;
+      return new DeltaInsert(tableName, sheet, keyColumn, defaultValues, valueGenerators(builder, tableName),
+          batchSize, builder.convertWithMetadata, builder.loader);
+    }
+    if (builder.batchSize != 0 || builder.convertWithMetadata || builder.loader != null) {
+      // the converters need the connection, so BatchInsert binds the rows, one row per batch by default
+      var batchSize = builder.batchSize == 0 ? 1 : builder.batchSize;
+      return new BatchInsert(tableName, sheet, valueGenerators(builder, tableName), batchSize,
+          builder.convertWithMetadata, builder.loader);
+    }
+    var ib = Insert.into(tableName).columns(sheet.columns);
+    setDefaultValues(ib, builder.defaultValues, tableName);
+    setValueGenerators(ib, builder.valueGenerators, tableName);
+    for (var r = 0; r < sheet.rowCount; ) {
+      var blank = sheet.blankRun(r);
+      if (blank < 2) {
+        ib.values(sheet.row(r++));
+      } else {
+        // the run of the blank rows is given as one row repeated
+        ib.repeatingValues(sheet.row(r)).times(blank);
+        r += blank;
+      }
+    }
+    return ib.build();
+  }
+
+  static boolean isExcluded(Pattern @Nullable [] include, Pattern @Nullable [] exclude, String sheetName) {
     var included = include == null || include.length == 0;
     if (!included) {
       for (var in : include) {
@@ -110,59 +252,61 @@ final class OperationBuilder {
     vg.forEach(ib::withGeneratedValue);
   }
 
-  private static String a1(Cell cell) {
-    return new CellReference(cell).formatAsString();
+  static Map<String, ValueGenerator<?>> valueGenerators(Import.Builder builder, String tableName) {
+    var valueGenerators = new LinkedHashMap<String, ValueGenerator<?>>();
+    var dv = builder.defaultValues.get(tableName);
+    if (dv != null) {
+      dv.forEach((column, value) -> valueGenerators.put(column, ValueGenerators.constant(value)));
+    }
+    var vg = builder.valueGenerators.get(tableName);
+    if (vg != null) {
+      valueGenerators.putAll(vg);
+    }
+    return valueGenerators;
+  }
+
+  static String a1(String sheetName, int r, int c) {
+    return new CellReference(sheetName, r, c, false, false).formatAsString();
   }
 
-  private static String a1(Sheet sheet, int r, int c) {
-    return new CellReference(sheet.getSheetName(), r, c, false, false).formatAsString();
+  static String a1(int r, int c) {
+    return new CellReference(r, c, false, false).formatAsString();
   }
 
-  private static String[] columns(Row row, int left, int width, FormulaEvaluator evaluator) {
-    var columns = new String[width];
-    for (var i = 0; i < width; i++) {
-      var c = left + i;
-      var cell = row.getCell(c);
-      if (cell == null) {
-        throw new DbSetupRuntimeException("header cell must not be blank: " + a1(row.getSheet(), row.getRowNum(), c));
+  /**
+   * An input stream which counts the bytes read.
+   */
+  static final class CountingInputStream extends FilterInputStream {
+
+    private final LongAdder count;
+
+    CountingInputStream(InputStream in, LongAdder count) {
+      super(in);
+      this.count = count;
+    }
+
+    @Override
+    public int read() throws IOException {
+      var b = super.read();
+      if (b != -1) {
+        count.increment();
       }
-      var value = value(cell, evaluator);
-      if (value == null || "".equals(value)) {
-        throw new DbSetupRuntimeException("header cell must not be blank: " + a1(cell));
-      } else if (!(value instanceof String)) {
-        throw new DbSetupRuntimeException("header cell must be string type: " + a1(cell));
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      var n = super.read(b, off, len);
+      if (n != -1) {
+        count.add(n);
       }
-      columns[i] = (String) value;
-    }
-    return columns;
-  }
-
-  @Nullable
-  private static Object value(Cell cell, FormulaEvaluator evaluator) {
-    switch (cell.getCellType()) {
-      case NUMERIC:
-        return DateUtil.isCellDateFormatted(cell) ? cell.getDateCellValue() : cell.getNumericCellValue();
-      case STRING:
-        return cell.getStringCellValue();
-      case FORMULA:
-        return value(evaluator.evaluateInCell(cell), evaluator);
-      case BLANK:
-        return null;
-      case BOOLEAN:
-        return cell.getBooleanCellValue();
-      case ERROR:
-        throw new DbSetupRuntimeException("error value contained: " + a1(cell));
-      default:
-        throw new DbSetupRuntimeException("unsupported type: " + a1(cell));
-    }
-  }
-
-  private static Object[] values(Row row, int left, int width, FormulaEvaluator evaluator) {
-    var values = new Object[width];
-    for (var i = 0; i < width; i++) {
-      var cell = row.getCell(left + i);
-      values[i] = cell == null ? null : value(cell, evaluator);
-    }
-    return values;
+      return n;
+    }
+
+    @Override
+    public boolean markSupported() {
+      // the bytes read again after reset would be counted twice
+      return false;
+    }
   }
 }
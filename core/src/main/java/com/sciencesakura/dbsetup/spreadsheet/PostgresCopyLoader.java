@@ -0,0 +1,139 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.bind.BinderConfiguration;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import org.jspecify.annotations.Nullable;
+import org.postgresql.PGConnection;
+
+/**
+ * A loader which streams the rows to the {@code COPY ... FROM STDIN} command of PostgreSQL.
+ *
+ * <p>The rows are converted into the CSV format one by one while the driver reads them,
+ * so the whole table is never held as a text. The blank cells are written as the unquoted empty fields,
+ * which are {@code NULL} in the CSV format of PostgreSQL, and the strings are always quoted so that
+ * the empty strings are distinguished from {@code NULL}.</p>
+ */
+final class PostgresCopyLoader implements BulkLoader {
+
+  @Override
+  public void load(Connection connection, BinderConfiguration configuration, String table, String[] columns,
+                   Rows rows) throws SQLException {
+    if (rows.size() == 0) {
+      return;
+    }
+    var sql = new StringBuilder("copy ").append(table).append(" (");
+    for (var i = 0; i < columns.length; i++) {
+      if (i != 0) {
+        sql.append(", ");
+      }
+      sql.append(columns[i]);
+    }
+    sql.append(") from stdin with (format csv)");
+    var copy = connection.unwrap(PGConnection.class).getCopyAPI();
+    try {
+      copy.copyIn(sql.toString(), new CsvReader(rows, columns.length));
+    } catch (IOException e) {
+      throw new SQLException("failed to copy rows into " + table, e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "postgres copy";
+  }
+
+  /**
+   * Produces the CSV text of the rows on demand.
+   */
+  static final class CsvReader extends Reader {
+
+    private final Rows rows;
+
+    private final int width;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final StringBuilder line = new StringBuilder(256);
+
+    private int row;
+
+    private int position;
+
+    CsvReader(Rows rows, int width) {
+      this.rows = rows;
+      this.width = width;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (position == line.length()) {
+        if (row == rows.size()) {
+          return -1;
+        }
+        nextLine();
+      }
+      var n = Math.min(len, line.length() - position);
+      line.getChars(position, position + n, cbuf, off);
+      position += n;
+      return n;
+    }
+
+    private void nextLine() {
+      line.setLength(0);
+      position = 0;
+      for (var c = 0; c < width; c++) {
+        if (c != 0) {
+          line.append(',');
+        }
+        append(rows.get(row, c));
+      }
+      line.append('\n');
+      row++;
+    }
+
+    private void append(@Nullable Object value) {
+      if (value == null) {
+        return;
+      }
+      if (value instanceof Double) {
+        var d = (Double) value;
+        if (ColumnData.isLong(d)) {
+          line.append((long) (double) d);
+        } else {
+          line.append(d.doubleValue());
+        }
+      } else if (value instanceof Number || value instanceof Boolean) {
+        line.append(value);
+      } else if (value instanceof Date) {
+        var dateTime = LocalDateTime.ofInstant(((Date) value).toInstant(), zone);
+        line.append(dateTime.toLocalDate()).append(' ').append(dateTime.toLocalTime());
+      } else {
+        var text = value.toString();
+        line.append('"');
+        for (var i = 0; i < text.length(); i++) {
+          var ch = text.charAt(i);
+          if (ch == '"') {
+            line.append('"');
+          }
+          line.append(ch);
+        }
+        line.append('"');
+      }
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
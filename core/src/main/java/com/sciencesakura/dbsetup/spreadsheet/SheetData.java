@@ -0,0 +1,173 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import java.util.BitSet;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The contents of a worksheet: the column names given by the header row and the values of the data rows.
+ *
+ * <p>The values are stored column by column in the primitive arrays of {@link ColumnData}.</p>
+ *
+ * <p>Instances are shared by {@link WorkbookCache} between several imports, so they must not be modified
+ * once they are built.</p>
+ */
+final class SheetData {
+
+  final String name;
+
+  final String[] columns;
+
+  final int rowCount;
+
+  final ColumnData[] data;
+
+  private final BitSet blankRows;
+
+  private final @Nullable Object[] blankRow;
+
+  private SheetData(String name, String[] columns, int rowCount, ColumnData[] data, BitSet blankRows) {
+    this.name = name;
+    this.columns = columns;
+    this.rowCount = rowCount;
+    this.data = data;
+    this.blankRows = blankRows;
+    this.blankRow = new Object[columns.length];
+  }
+
+  /**
+   * Returns the boxed value at the given row and column.
+   */
+  @Nullable
+  Object value(int row, int column) {
+    return data[column].get(row);
+  }
+
+  /**
+   * Returns the boxed values of the given row.
+   * The blank rows share the same array, so that the returned array must not be modified.
+   */
+  @Nullable Object[] row(int row) {
+    if (blankRows.get(row)) {
+      return blankRow;
+    }
+    var values = new Object[columns.length];
+    for (var c = 0; c < columns.length; c++) {
+      values[c] = data[c].get(row);
+    }
+    return values;
+  }
+
+  /**
+   * Returns the number of the consecutive blank rows from the given row.
+   *
+   * @return the number of the blank rows, or {@code 0} if the given row is not blank
+   */
+  int blankRun(int row) {
+    return blankRows.get(row) ? blankRows.nextClearBit(row) - row : 0;
+  }
+
+  /**
+   * Builds the {@code SheetData} row by row.
+   *
+   * <p>The type of each column is inferred from its first non-blank value unless it is declared.
+   * If a later value cannot be stored in the inferred type, the column is widened:
+   * {@code LONG} to {@code DOUBLE} for the non-integral numbers, and any other type to {@code OBJECT}.</p>
+   *
+   * <p>The blank cells are not appended one by one. Each column is padded with the blank cells in bulk when
+   * its next value is appended or the data is built, so that the blank cells of the sparse rows cost nothing,
+   * and the rows without any value are recorded as the blank rows.</p>
+   */
+  static final class Builder {
+
+    private final String name;
+
+    private final String[] columns;
+
+    private final ColumnType @Nullable [] declared;
+
+    private final @Nullable ColumnData[] data;
+
+    private final BitSet blankRows = new BitSet();
+
+    private int rowCount;
+
+    private boolean blank = true;
+
+    Builder(String name, String[] columns, ColumnType @Nullable [] declared) {
+      this.name = name;
+      this.columns = columns;
+      this.declared = declared;
+      this.data = new ColumnData[columns.length];
+      if (declared != null) {
+        for (var c = 0; c < columns.length; c++) {
+          var type = declared[c];
+          if (type != null) {
+            data[c] = ColumnData.of(type);
+          }
+        }
+      }
+    }
+
+    /**
+     * Appends the value of the given column to the current row.
+     *
+     * @return {@code false} if the value cannot be stored in the declared type of the column
+     */
+    boolean add(int column, @Nullable Object value) {
+      if (value == null) {
+        // the blank cells are appended with the next value of the column
+        return true;
+      }
+      blank = false;
+      var d = data[column];
+      if (d == null) {
+        d = ColumnData.of(ColumnData.typeOf(value));
+        data[column] = d;
+      }
+      d.pad(rowCount);
+      if (d.add(value)) {
+        return true;
+      }
+      var declared = this.declared;
+      if (declared != null && declared[column] != null) {
+        return false;
+      }
+      data[column] = ColumnData.promote(d, value);
+      return true;
+    }
+
+    /**
+     * Returns {@code true} if no value has been appended to the current row.
+     */
+    boolean isBlankRow() {
+      return blank;
+    }
+
+    /**
+     * Ends the current row. The columns not given by {@link #add(int, Object)} are blank.
+     */
+    void endRow() {
+      if (blank) {
+        blankRows.set(rowCount);
+      }
+      blank = true;
+      rowCount++;
+    }
+
+    SheetData build() {
+      var built = new ColumnData[columns.length];
+      for (var c = 0; c < columns.length; c++) {
+        var d = data[c];
+        if (d == null) {
+          d = ColumnData.of(ColumnType.OBJECT);
+        }
+        d.pad(rowCount);
+        d.trim();
+        built[c] = d;
+      }
+      return new SheetData(name, columns, rowCount, built, blankRows);
+    }
+  }
+}
@@ -0,0 +1,248 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import java.util.function.Consumer;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Converts the rows of a worksheet into the {@link SheetData}.
+ *
+ * <p>The rows must be given in ascending order of their index.
+ * This class applies the margins, the header row and the rows to skip after the header row,
+ * so that every reader of the worksheet shares the same rules.</p>
+ *
+ * <p>If the consumer of the chunks is given, the data rows are handed to it every {@code chunkSize} rows
+ * and are not kept in this parser, so that the memory does not grow with the height of the worksheet.</p>
+ */
+final class SheetParser {
+
+  private final Import.Builder builder;
+
+  private final String sheetName;
+
+  private final @Nullable Consumer<SheetData> chunks;
+
+  private final @Nullable ImportBudget budget;
+
+  private String[] columns = new String[0];
+
+  private ColumnType @Nullable [] declared;
+
+  private SheetData.@Nullable Builder data;
+
+  private int width;
+
+  private int next;
+
+  private int headerIndex;
+
+  private int lastIndex;
+
+  private int rowCount;
+
+  SheetParser(Import.Builder builder, String sheetName) {
+    this(builder, sheetName, null, null);
+  }
+
+  /**
+   * Creates a parser which hands the data rows to the given consumer every {@link Import.Builder#chunkSize} rows.
+   *
+   * @param chunks the consumer of the chunks, or {@code null} to keep all the rows in this parser
+   * @param budget the budget shared by the worksheets of the file, or {@code null} if it is not limited
+   */
+  SheetParser(Import.Builder builder, String sheetName, @Nullable Consumer<SheetData> chunks,
+              @Nullable ImportBudget budget) {
+    this.builder = builder;
+    this.sheetName = sheetName;
+    this.chunks = chunks;
+    this.budget = budget;
+  }
+
+  /**
+   * Accepts the next physical row of the worksheet.
+   *
+   * @param row the row
+   * @return {@code false} if the data rows have ended and the following rows should not be given
+   */
+  boolean accept(SheetRow row) {
+    var data = this.data;
+    if (data == null) {
+      if (row.index() < builder.top) {
+        return true;
+      }
+      if (row.index() > builder.top) {
+        throw headerRowNotFound();
+      }
+      header(row);
+      return true;
+    }
+    if (row.index() < next) {
+      return true;
+    }
+    if (row.index() > next) {
+      return false;
+    }
+    if (builder.maxRows != 0 && rowCount == builder.maxRows) {
+      if (builder.stopAtBlankRow && isBlank(row)) {
+        return false;
+      }
+      throw new DbSetupRuntimeException("too many rows: " + sheetName + " has more than " + builder.maxRows
+          + " rows, used range " + usedRange(row.index()));
+    }
+    if (!values(row, data)) {
+      return false;
+    }
+    lastIndex = row.index();
+    next++;
+    return true;
+  }
+
+  /**
+   * Returns the contents of the worksheet built from the accepted rows.
+   * If the consumer of the chunks is given, the last chunk is also handed to it, even if it has no rows.
+   *
+   * @return the contents of the worksheet, or the last chunk if the consumer of the chunks is given
+   */
+  SheetData finish() {
+    var data = this.data;
+    if (data == null) {
+      throw headerRowNotFound();
+    }
+    var sheet = data.build();
+    var chunks = this.chunks;
+    if (chunks != null) {
+      chunks.accept(sheet);
+    }
+    return sheet;
+  }
+
+  /**
+   * Returns the number of the data rows accepted so far, including the rows handed as the chunks.
+   *
+   * @return the number of the data rows
+   */
+  int rowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Returns the column names read from the header row.
+   *
+   * @return the column names, or an empty array if the header row has not been read
+   */
+  String[] columns() {
+    return columns;
+  }
+
+  private void header(SheetRow row) {
+    width = row.lastCellNum() - builder.left;
+    if (width <= 0) {
+      throw headerRowNotFound();
+    }
+    columns = columns(row);
+    declared = declaredTypes(columns);
+    data = new SheetData.Builder(sheetName, columns, declared);
+    headerIndex = row.index();
+    lastIndex = row.index();
+    next = row.index() + builder.skipAfterHeader + 1;
+  }
+
+  /**
+   * Returns the range from the header row to the last data row accepted so far, such as {@code Sheet1!A1:J100}.
+   *
+   * @return the used range of the worksheet
+   */
+  String usedRange() {
+    return usedRange(lastIndex);
+  }
+
+  /**
+   * Returns the range from the header row to the given row, such as {@code Sheet1!A1:J100}.
+   */
+  String usedRange(int lastRow) {
+    return OperationBuilder.a1(sheetName, headerIndex, builder.left) + ':'
+        + OperationBuilder.a1(lastRow, builder.left + Math.max(width, 1) - 1);
+  }
+
+  private DbSetupRuntimeException headerRowNotFound() {
+    return new DbSetupRuntimeException("header row not found: " + sheetName + '[' + builder.top + ']');
+  }
+
+  private String[] columns(SheetRow row) {
+    var columns = new String[width];
+    for (var i = 0; i < width; i++) {
+      var c = builder.left + i;
+      var value = row.value(c);
+      if (value == null || "".equals(value)) {
+        throw new DbSetupRuntimeException("header cell must not be blank: "
+            + OperationBuilder.a1(sheetName, row.index(), c));
+      } else if (!(value instanceof String)) {
+        throw new DbSetupRuntimeException("header cell must be string type: "
+            + OperationBuilder.a1(sheetName, row.index(), c));
+      }
+      columns[i] = (String) value;
+    }
+    return columns;
+  }
+
+  private ColumnType @Nullable [] declaredTypes(String[] columns) {
+    var table = builder.resolver.apply(sheetName);
+    var types = table == null ? null : builder.columnTypes.get(table);
+    if (types == null) {
+      return null;
+    }
+    var declared = new ColumnType[columns.length];
+    for (var i = 0; i < columns.length; i++) {
+      declared[i] = types.get(columns[i]);
+    }
+    return declared;
+  }
+
+  /**
+   * Appends the values of the given data row.
+   *
+   * @return {@code false} if the row is blank and ends the data rows
+   */
+  private boolean values(SheetRow row, SheetData.Builder data) {
+    var left = builder.left;
+    var end = Math.min(left + width, row.lastCellNum());
+    // only the present cells are read, the blank cells are filled in bulk by the builder
+    for (var c = row.nextColumn(left); c < end; c = row.nextColumn(c + 1)) {
+      var i = c - left;
+      if (!data.add(i, row.value(c))) {
+        var declared = this.declared;
+        throw new DbSetupRuntimeException("cell must be " + (declared == null ? null : declared[i]) + " type: "
+            + OperationBuilder.a1(sheetName, row.index(), c));
+      }
+    }
+    if (builder.stopAtBlankRow && data.isBlankRow()) {
+      // nothing has been appended for the blank row
+      return false;
+    }
+    data.endRow();
+    rowCount++;
+    var budget = this.budget;
+    if (budget != null) {
+      budget.addCells(width, this, row.index());
+    }
+    var chunks = this.chunks;
+    if (chunks != null && rowCount % builder.chunkSize == 0) {
+      chunks.accept(data.build());
+      this.data = new SheetData.Builder(sheetName, columns, declared);
+    }
+    return true;
+  }
+
+  private boolean isBlank(SheetRow row) {
+    var left = builder.left;
+    var end = Math.min(left + width, row.lastCellNum());
+    for (var c = row.nextColumn(left); c < end; c = row.nextColumn(c + 1)) {
+      if (row.value(c) != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
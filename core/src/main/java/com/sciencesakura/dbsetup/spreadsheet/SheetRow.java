@@ -0,0 +1,46 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A physical row of the worksheet, independent of how the underlying file is read.
+ */
+interface SheetRow {
+
+  /**
+   * Returns the 0-based index of this row.
+   *
+   * @return the row index
+   */
+  int index();
+
+  /**
+   * Returns the index of the last cell contained in this row plus one.
+   *
+   * @return the index of the last cell plus one, or {@code 0} if this row contains no cells
+   */
+  int lastCellNum();
+
+  /**
+   * Returns the value of the cell at the given column.
+   *
+   * @param column the 0-based column index
+   * @return the cell value, or {@code null} if the cell is blank or does not exist
+   */
+  @Nullable
+  Object value(int column);
+
+  /**
+   * Returns the first column at or after the given column which may have a value.
+   * The rows which know their present cells override this, so that the blank cells of the sparse rows are
+   * skipped without being looked up.
+   *
+   * @param column the 0-based column index to start from
+   * @return the column index, or {@link #lastCellNum()} if no more cells are present
+   */
+  default int nextColumn(int column) {
+    return Math.min(column, lastCellNum());
+  }
+}
@@ -0,0 +1,228 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Reads and writes the binary snapshot of the parsed Excel file.
+ *
+ * <p>The snapshot holds the contents of the worksheets with the typed values, so that the Excel file does not
+ * have to be parsed again. It also holds the SHA-256 digest of the Excel file and the settings which affect
+ * parsing, and is rebuilt when they do not match the current ones.</p>
+ *
+ * <p>The format is as follows. All the numbers are big-endian and the strings are written as the length in bytes
+ * followed by the UTF-8 bytes. The type of a column is the ordinal of its {@link ColumnType}, and is declared
+ * when the snapshot is read so that the columns are stored in the same types. The values are written row by row.</p>
+ * <pre>
+ * snapshot = magic:int version:int key:string sheetCount:int sheet*
+ * sheet    = name:string columnCount:int (column:string type:byte)* rowCount:int value*
+ * value    = NULL:byte | STRING:byte string | NUMBER:byte double | BOOLEAN:byte byte | DATE:byte long
+ * </pre>
+ */
+final class Snapshot {
+
+  private static final int MAGIC = 0x44425353;
+
+  private static final int VERSION = 2;
+
+  private static final byte NULL = 0;
+
+  private static final byte STRING = 1;
+
+  private static final byte NUMBER = 2;
+
+  private static final byte BOOLEAN = 3;
+
+  private static final byte DATE = 4;
+
+  private Snapshot() {
+  }
+
+  /**
+   * Returns the contents of the Excel file from the snapshot,
+   * or parses the Excel file and writes the snapshot if it is missing or out of date.
+   *
+   * @param builder  the builder
+   * @param snapshot the path to the snapshot
+   * @return the contents of the worksheets
+   */
+  static List<SheetData> read(Import.Builder builder, Path snapshot) {
+    var key = key(builder);
+    if (Files.isRegularFile(snapshot)) {
+      var sheets = load(snapshot, key);
+      if (sheets != null) {
+        return sheets;
+      }
+    }
+    var sheets = OperationBuilder.parse(builder);
+    write(snapshot, key, sheets);
+    return sheets;
+  }
+
+  private static String key(Import.Builder builder) {
+    return WorkbookCache.digest(builder.location) + WorkbookCache.settings(builder);
+  }
+
+  private static @Nullable List<SheetData> load(Path snapshot, String key) {
+    ByteBuffer buffer;
+    try (var channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException e) {
+      throw new DbSetupRuntimeException("failed to open " + snapshot, e);
+    }
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !key.equals(readString(buffer))) {
+        return null;
+      }
+      var count = buffer.getInt();
+      var sheets = new ArrayList<SheetData>(count);
+      for (var i = 0; i < count; i++) {
+        sheets.add(readSheet(buffer));
+      }
+      return sheets;
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      // the snapshot is broken, so it is rebuilt
+      return null;
+    }
+  }
+
+  private static SheetData readSheet(ByteBuffer buffer) {
+    var name = readString(buffer);
+    var columns = new String[buffer.getInt()];
+    var types = new ColumnType[columns.length];
+    var allTypes = ColumnType.values();
+    for (var i = 0; i < columns.length; i++) {
+      columns[i] = readString(buffer);
+      var type = buffer.get();
+      if (type < 0 || allTypes.length <= type) {
+        throw new IllegalArgumentException("unknown column type: " + type);
+      }
+      types[i] = allTypes[type];
+    }
+    var rowCount = buffer.getInt();
+    var data = new SheetData.Builder(name, columns, types);
+    for (var r = 0; r < rowCount; r++) {
+      for (var c = 0; c < columns.length; c++) {
+        if (!data.add(c, readValue(buffer))) {
+          throw new IllegalArgumentException("unexpected value in " + types[c] + " column");
+        }
+      }
+      data.endRow();
+    }
+    return data.build();
+  }
+
+  @Nullable
+  private static Object readValue(ByteBuffer buffer) {
+    var type = buffer.get();
+    switch (type) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(buffer);
+      case NUMBER:
+        return buffer.getDouble();
+      case BOOLEAN:
+        return buffer.get() != 0;
+      case DATE:
+        return new Date(buffer.getLong());
+      default:
+        throw new IllegalArgumentException("unknown type: " + type);
+    }
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    var length = buffer.getInt();
+    if (length < 0 || buffer.remaining() < length) {
+      throw new BufferUnderflowException();
+    }
+    var bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void write(Path snapshot, String key, List<SheetData> sheets) {
+    try {
+      var parent = snapshot.toAbsolutePath().getParent();
+      if (parent == null) {
+        throw new DbSetupRuntimeException("invalid snapshot path: " + snapshot);
+      }
+      Files.createDirectories(parent);
+      // the snapshot is replaced atomically because it may be read by other processes
+      var temp = Files.createTempFile(parent, snapshot.getFileName().toString(), ".tmp");
+      try {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+          out.writeInt(MAGIC);
+          out.writeInt(VERSION);
+          writeString(out, key);
+          out.writeInt(sheets.size());
+          for (var sheet : sheets) {
+            writeSheet(out, sheet);
+          }
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      throw new DbSetupRuntimeException("failed to write " + snapshot, e);
+    }
+  }
+
+  private static void writeSheet(DataOutputStream out, SheetData sheet) throws IOException {
+    writeString(out, sheet.name);
+    out.writeInt(sheet.columns.length);
+    for (var c = 0; c < sheet.columns.length; c++) {
+      writeString(out, sheet.columns[c]);
+      out.writeByte(sheet.data[c].type.ordinal());
+    }
+    out.writeInt(sheet.rowCount);
+    for (var r = 0; r < sheet.rowCount; r++) {
+      for (var c = 0; c < sheet.columns.length; c++) {
+        writeValue(out, sheet.value(r, c));
+      }
+    }
+  }
+
+  private static void writeValue(DataOutputStream out, @Nullable Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeString(out, (String) value);
+    } else if (value instanceof Double) {
+      out.writeByte(NUMBER);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof Date) {
+      out.writeByte(DATE);
+      out.writeLong(((Date) value).getTime());
+    } else {
+      throw new IllegalStateException("unsupported value: " + value.getClass());
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    var bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
@@ -0,0 +1,29 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+/**
+ * The format of the file to import.
+ */
+enum SourceFormat {
+
+  /**
+   * The Microsoft Excel file (.xlsx or .xls).
+   */
+  EXCEL,
+
+  /**
+   * The comma-separated values file.
+   */
+  CSV,
+
+  /**
+   * The tab-separated values file.
+   */
+  TSV,
+
+  /**
+   * The OpenDocument Spreadsheet file (.ods).
+   */
+  ODS
+}
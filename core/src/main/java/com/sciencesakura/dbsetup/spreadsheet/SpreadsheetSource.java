@@ -0,0 +1,143 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The source of the worksheets, which reads a file of a certain format.
+ *
+ * <p>The source only iterates the visible worksheets and their physical rows. The rest of the parsing, such as
+ * the worksheets to include and exclude, the margins, the header row and the declared column types, is done by
+ * {@link OperationBuilder} and {@link SheetParser} on top of the source, so that every source behaves the same.
+ * The source is selected by {@link #of(Import.Builder)}.</p>
+ *
+ * <p>The worksheets are iterated by {@link #next()} on one thread. If {@link #concurrent()} returns {@code true},
+ * the cursors opened for the worksheets can be read concurrently after all the worksheets are iterated.
+ * Otherwise each cursor must be read before the next worksheet is iterated, and the worksheets not opened are
+ * skipped.</p>
+ */
+interface SpreadsheetSource extends Closeable {
+
+  /**
+   * Returns the default source of the given builder.
+   *
+   * @param builder the builder
+   * @return the factory of the source
+   */
+  static Factory of(Import.Builder builder) {
+    var source = builder.source;
+    if (source != null) {
+      return source;
+    }
+    switch (builder.format) {
+      case CSV:
+      case TSV:
+        return DelimitedReader::open;
+      case ODS:
+        return OdsReader::open;
+      default:
+        return builder.streaming ? StreamingReader::open : WorkbookReader::open;
+    }
+  }
+
+  /**
+   * Returns the next visible worksheet.
+   *
+   * @return the next worksheet, or {@code null} if there are no more worksheets
+   * @throws IOException if failed to read the file
+   */
+  @Nullable
+  Sheet next() throws IOException;
+
+  /**
+   * Returns whether the cursors of the worksheets can be read concurrently.
+   *
+   * @return {@code true} if the cursors can be read concurrently
+   */
+  boolean concurrent();
+
+  /**
+   * A worksheet of the source.
+   */
+  interface Sheet {
+
+    /**
+     * Returns the name of this worksheet.
+     *
+     * @return the worksheet name
+     */
+    String name();
+
+    /**
+     * Opens the cursor of the rows of this worksheet. This method is called on the thread iterating the worksheets.
+     *
+     * @return the cursor
+     * @throws IOException if failed to read the file
+     */
+    Cursor open() throws IOException;
+  }
+
+  /**
+   * A cursor of the physical rows of a worksheet.
+   */
+  interface Cursor {
+
+    /**
+     * Gives the rows to the given action in order, until the action returns {@code false} or the rows run out.
+     * The given row may be reused for the next row, so that the action must not keep it.
+     *
+     * @param action the action which returns {@code false} to stop reading
+     * @throws IOException if failed to read the file
+     */
+    void read(Predicate<SheetRow> action) throws IOException;
+
+    /**
+     * Returns the number of the formulas evaluated while reading.
+     *
+     * @return the number of the evaluated formulas
+     */
+    default int formulas() {
+      return 0;
+    }
+
+    /**
+     * Returns the number of the formula results reused from the cache of the formula evaluator while reading.
+     *
+     * @return the number of the cache hits
+     */
+    default int formulaCacheHits() {
+      return 0;
+    }
+
+    /**
+     * Returns the number of the formulas whose cached results were used while reading.
+     *
+     * @return the number of the cached formula results
+     */
+    default int cachedFormulas() {
+      return 0;
+    }
+  }
+
+  /**
+   * Opens the source.
+   */
+  @FunctionalInterface
+  interface Factory {
+
+    /**
+     * Opens the source of the file of the given builder.
+     *
+     * @param builder the builder
+     * @param bytes   the counter of the bytes read from the file
+     * @return the source
+     * @throws IOException if failed to open the file
+     */
+    SpreadsheetSource open(Import.Builder builder, LongAdder bytes) throws IOException;
+  }
+}
@@ -0,0 +1,409 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.xmlbeans.XmlException;
+import org.jspecify.annotations.Nullable;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTSheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STSheetState;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.WorkbookDocument;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads the Office Open XML (.xlsx) file with the event model of Apache POI.
+ *
+ * <p>Unlike {@link org.apache.poi.ss.usermodel.WorkbookFactory}, this reader does not build the whole workbook
+ * in memory. The worksheet XML is parsed with SAX and every row is given to {@link SheetParser} as soon as it is
+ * read. Formula cells are not evaluated; the cached results saved in the file are used instead.
+ * The worksheets are parsed by their own streams, so that they can be read concurrently.</p>
+ */
+final class StreamingReader implements SpreadsheetSource {
+
+  private final OPCPackage pkg;
+
+  private final XSSFReader reader;
+
+  private final IntFunction<String> strings;
+
+  private final DateStyles styles;
+
+  private final boolean date1904;
+
+  private final CTSheet[] sheets;
+
+  private int index;
+
+  private StreamingReader(Import.Builder builder, OPCPackage pkg)
+      throws IOException, OpenXML4JException, XmlException, SAXException, ParserConfigurationException {
+    this.pkg = pkg;
+    reader = new XSSFReader(pkg);
+    WorkbookDocument workbook;
+    try (var in = reader.getWorkbookData()) {
+      workbook = WorkbookDocument.Factory.parse(in);
+    }
+    var wb = workbook.getWorkbook();
+    date1904 = wb.isSetWorkbookPr() && wb.getWorkbookPr().getDate1904();
+    strings = strings(builder, pkg);
+    styles = DateStyles.of(reader.getStylesTable());
+    sheets = wb.getSheets().getSheetArray();
+  }
+
+  static SpreadsheetSource open(Import.Builder builder, LongAdder bytes) throws IOException {
+    try {
+      var pkg = open(builder.location, bytes);
+      try {
+        return new StreamingReader(builder, pkg);
+      } catch (IOException | OpenXML4JException | XmlException | SAXException | ParserConfigurationException
+               | RuntimeException e) {
+        pkg.revert();
+        throw e;
+      }
+    } catch (OpenXML4JException | XmlException | SAXException | ParserConfigurationException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  @Nullable
+  public Sheet next() {
+    while (index < sheets.length) {
+      var sheet = sheets[index++];
+      if (sheet.getState() == STSheetState.HIDDEN || sheet.getState() == STSheetState.VERY_HIDDEN) {
+        continue;
+      }
+      var sheetName = sheet.getName();
+      var relId = sheet.getId();
+      return new Sheet() {
+
+        @Override
+        public String name() {
+          return sheetName;
+        }
+
+        @Override
+        public Cursor open() throws IOException {
+          // the package is not thread-safe, so the stream is opened on the iterating thread
+          InputStream in;
+          try {
+            in = reader.getSheet(relId);
+          } catch (OpenXML4JException e) {
+            throw new IOException(e);
+          }
+          return new XmlCursor(in, sheetName);
+        }
+      };
+    }
+    return null;
+  }
+
+  @Override
+  public boolean concurrent() {
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    pkg.close();
+  }
+
+  private static IntFunction<String> strings(Import.Builder builder, OPCPackage pkg)
+      throws IOException, SAXException, ParserConfigurationException {
+    if (builder.sharedStringsOnDisk) {
+      return DiskSharedStrings.read(pkg);
+    }
+    var strings = new ReadOnlySharedStringsTable(pkg);
+    return index -> strings.getItemAt(index).getString();
+  }
+
+  private static OPCPackage open(URL location, LongAdder bytes) throws IOException, OpenXML4JException {
+    if ("file".equals(location.getProtocol())) {
+      try {
+        var file = new File(location.toURI());
+        bytes.add(file.length());
+        return OPCPackage.open(file, PackageAccess.READ);
+      } catch (URISyntaxException e) {
+        throw new IOException(e);
+      }
+    }
+    try (var in = new OperationBuilder.CountingInputStream(location.openStream(), bytes)) {
+      return OPCPackage.open(in);
+    }
+  }
+
+  private final class XmlCursor implements Cursor {
+
+    private final InputStream in;
+
+    private final String sheetName;
+
+    private int cachedFormulas;
+
+    XmlCursor(InputStream in, String sheetName) {
+      this.in = in;
+      this.sheetName = sheetName;
+    }
+
+    @Override
+    public void read(Predicate<SheetRow> action) throws IOException {
+      var handler = new SheetHandler(action, sheetName, strings, styles, date1904);
+      try (var stream = in) {
+        var xmlReader = XMLHelper.newXMLReader();
+        xmlReader.setContentHandler(handler);
+        xmlReader.parse(new InputSource(stream));
+      } catch (EndOfTable e) {
+        // the rest of the worksheet is not needed
+      } catch (SAXException | ParserConfigurationException e) {
+        throw new IOException(e);
+      } finally {
+        // the formulas are not evaluated, the cached results are used instead
+        cachedFormulas = handler.cachedFormulas;
+      }
+    }
+
+    @Override
+    public int cachedFormulas() {
+      return cachedFormulas;
+    }
+  }
+
+  private static final class EndOfTable extends SAXException {
+
+    private static final long serialVersionUID = 1L;
+
+    EndOfTable() {
+      super("end of table");
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  private static final class SheetHandler extends DefaultHandler implements SheetRow {
+
+    private static final String NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private static final Object ERROR = new Object();
+
+    private final Predicate<SheetRow> action;
+
+    private final String sheetName;
+
+    private final IntFunction<String> strings;
+
+    private final DateStyles styles;
+
+    private final boolean date1904;
+
+    private final StringBuilder text = new StringBuilder(64);
+
+    private @Nullable Object[] cells = new Object[16];
+
+    private boolean[] formulas = new boolean[16];
+
+    private int rowIndex = -1;
+
+    private int lastCellNum;
+
+    private int column;
+
+    private @Nullable String type;
+
+    private int style;
+
+    private boolean textOpen;
+
+    private boolean inlineString;
+
+    private boolean phonetic;
+
+    private int cachedFormulas;
+
+    SheetHandler(Predicate<SheetRow> action, String sheetName, IntFunction<String> strings, DateStyles styles,
+                 boolean date1904) {
+      this.action = action;
+      this.sheetName = sheetName;
+      this.strings = strings;
+      this.styles = styles;
+      this.date1904 = date1904;
+    }
+
+    @Override
+    public int index() {
+      return rowIndex;
+    }
+
+    @Override
+    public int lastCellNum() {
+      return lastCellNum;
+    }
+
+    @Override
+    @Nullable
+    public Object value(int column) {
+      if (lastCellNum <= column) {
+        return null;
+      }
+      var value = cells[column];
+      if (formulas[column]) {
+        cachedFormulas++;
+      }
+      if (value == ERROR) {
+        throw new DbSetupRuntimeException("error value contained: " + OperationBuilder.a1(sheetName, rowIndex, column));
+      }
+      return value;
+    }
+
+    @Override
+    public int nextColumn(int column) {
+      for (var c = column; c < lastCellNum; c++) {
+        if (cells[c] != null) {
+          return c;
+        }
+      }
+      return lastCellNum;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String name, Attributes attributes) {
+      if (!NS.equals(uri)) {
+        return;
+      }
+      switch (localName) {
+        case "row":
+          var r = attributes.getValue("r");
+          rowIndex = r == null ? rowIndex + 1 : Integer.parseInt(r) - 1;
+          column = -1;
+          Arrays.fill(cells, 0, lastCellNum, null);
+          Arrays.fill(formulas, 0, lastCellNum, false);
+          lastCellNum = 0;
+          break;
+        case "c":
+          var ref = attributes.getValue("r");
+          column = ref == null ? column + 1 : column(ref);
+          type = attributes.getValue("t");
+          var s = attributes.getValue("s");
+          style = s == null ? 0 : Integer.parseInt(s);
+          text.setLength(0);
+          if (cells.length <= column) {
+            cells = Arrays.copyOf(cells, Math.max(column + 1, cells.length * 2));
+            formulas = Arrays.copyOf(formulas, cells.length);
+          }
+          lastCellNum = column + 1;
+          break;
+        case "f":
+          formulas[column] = true;
+          break;
+        case "v":
+          textOpen = true;
+          break;
+        case "is":
+          inlineString = true;
+          break;
+        case "rPh":
+          phonetic = true;
+          break;
+        case "t":
+          textOpen = inlineString && !phonetic;
+          break;
+        default:
+          break;
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String name) throws SAXException {
+      if (!NS.equals(uri)) {
+        return;
+      }
+      switch (localName) {
+        case "row":
+          if (!action.test(this)) {
+            throw new EndOfTable();
+          }
+          break;
+        case "c":
+          cells[column] = convert();
+          break;
+        case "v":
+        case "t":
+          textOpen = false;
+          break;
+        case "is":
+          inlineString = false;
+          break;
+        case "rPh":
+          phonetic = false;
+          break;
+        default:
+          break;
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (textOpen) {
+        text.append(ch, start, length);
+      }
+    }
+
+    @Nullable
+    private Object convert() {
+      if (type == null || "n".equals(type)) {
+        if (text.length() == 0) {
+          return null;
+        }
+        var number = Double.parseDouble(text.toString());
+        return styles.isDate(style, number) ? DateUtil.getJavaDate(number, date1904) : number;
+      }
+      switch (type) {
+        case "s":
+          // some writers omit the index of an empty string, which the user model reads as blank
+          return text.length() == 0 ? null : strings.apply(Integer.parseInt(text.toString()));
+        case "inlineStr":
+        case "str":
+          return text.toString();
+        case "b":
+          return text.length() == 0 ? null : "1".equals(text.toString());
+        case "e":
+          return ERROR;
+        default:
+          throw new DbSetupRuntimeException("unsupported type: " + OperationBuilder.a1(sheetName, rowIndex, column));
+      }
+    }
+
+    private static int column(String ref) {
+      var column = 0;
+      for (var i = 0; i < ref.length(); i++) {
+        var ch = ref.charAt(i);
+        if (ch < 'A' || 'Z' < ch) {
+          break;
+        }
+        column = column * 26 + (ch - 'A' + 1);
+      }
+      return column - 1;
+    }
+  }
+}
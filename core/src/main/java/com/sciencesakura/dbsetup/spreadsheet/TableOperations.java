@@ -0,0 +1,188 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import com.ninja_squad.dbsetup.bind.BinderConfiguration;
+import com.ninja_squad.dbsetup.destination.Destination;
+import com.ninja_squad.dbsetup.operation.Operation;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An operation which inserts the tables of an Excel file.
+ *
+ * <p>By default, the tables are inserted one by one over the given connection in the order of the worksheets.
+ * If the ordering by foreign keys is enabled, the referenced tables are inserted before the tables referencing them.
+ * If the destination for the parallel loading is given, the tables are inserted concurrently over the
+ * connections obtained from the destination, each of them in its own transaction. In that case, the tables are
+ * divided into the groups of {@link ForeignKeys#groups(List)}, and the groups are inserted one after another.
+ * The transaction of the given connection is committed before that only if it is allowed explicitly,
+ * otherwise the parallel loading fails without changing anything.</p>
+ */
+final class TableOperations implements Operation {
+
+  private final List<String> tables;
+
+  private final int[] rows;
+
+  private final List<Operation> operations;
+
+  private final boolean orderByForeignKeys;
+
+  private final @Nullable Destination destination;
+
+  private final int parallelism;
+
+  private final boolean commitBeforeLoad;
+
+  private final @Nullable ImportListener listener;
+
+  TableOperations(Import.Builder builder, List<String> tables, int[] rows, List<Operation> operations) {
+    this(tables, rows, operations, builder.orderByForeignKeys, builder.loadDestination, builder.loadParallelism,
+        builder.commitBeforeLoad, builder.listener);
+  }
+
+  private TableOperations(List<String> tables, int[] rows, List<Operation> operations, boolean orderByForeignKeys,
+                          @Nullable Destination destination, int parallelism, boolean commitBeforeLoad,
+                          @Nullable ImportListener listener) {
+    this.tables = tables;
+    this.rows = rows;
+    this.operations = operations;
+    this.orderByForeignKeys = orderByForeignKeys;
+    this.destination = destination;
+    this.parallelism = parallelism;
+    this.commitBeforeLoad = commitBeforeLoad;
+    this.listener = listener;
+  }
+
+  /**
+   * Returns an operation which inserts the tables of all the given operations, in the given order
+   * or by the foreign keys between all of them.
+   */
+  static TableOperations concat(List<TableOperations> parts, boolean orderByForeignKeys,
+                                @Nullable ImportListener listener) {
+    var tables = new ArrayList<String>();
+    var operations = new ArrayList<Operation>();
+    for (var part : parts) {
+      tables.addAll(part.tables);
+      operations.addAll(part.operations);
+    }
+    var rows = new int[tables.size()];
+    var i = 0;
+    for (var part : parts) {
+      System.arraycopy(part.rows, 0, rows, i, part.rows.length);
+      i += part.rows.length;
+    }
+    return new TableOperations(tables, rows, operations, orderByForeignKeys, null, 0, false, listener);
+  }
+
+  @Override
+  public void execute(Connection connection, BinderConfiguration configuration) throws SQLException {
+    var destination = this.destination;
+    if (operations.size() < 2 || destination == null && !orderByForeignKeys) {
+      for (var i = 0; i < operations.size(); i++) {
+        execute(i, connection, configuration);
+      }
+      return;
+    }
+    var commit = destination != null && !connection.getAutoCommit();
+    if (commit && !commitBeforeLoad) {
+      // the caller may roll back the transaction, which must not be committed on its behalf
+      throw new DbSetupRuntimeException("parallel loading needs to commit the transaction of the connection, "
+          + "call commitBeforeParallelLoad() to allow it");
+    }
+    var groups = ForeignKeys.groups(ForeignKeys.parents(connection, tables));
+    if (destination == null) {
+      for (var group : groups) {
+        for (var i : group) {
+          execute(i, connection, configuration);
+        }
+      }
+      return;
+    }
+    // the other connections cannot see the uncommitted changes, and may be blocked by their locks
+    if (commit) {
+      connection.commit();
+    }
+    var executor = Executors.newFixedThreadPool(Math.min(parallelism, operations.size()));
+    try {
+      for (var group : groups) {
+        load(executor, destination, group, configuration);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void execute(int i, Connection connection, BinderConfiguration configuration) throws SQLException {
+    var listener = this.listener;
+    if (listener == null) {
+      operations.get(i).execute(connection, configuration);
+      return;
+    }
+    var start = System.nanoTime();
+    operations.get(i).execute(connection, configuration);
+    listener.tableInserted(tables.get(i), rows[i], System.nanoTime() - start);
+  }
+
+  private void load(ExecutorService executor, Destination destination, List<Integer> group,
+                    BinderConfiguration configuration) throws SQLException {
+    var tasks = new ArrayList<Callable<@Nullable Void>>(group.size());
+    for (var i : group) {
+      tasks.add(() -> {
+        load(destination, i, configuration);
+        return null;
+      });
+    }
+    try {
+      Throwable failure = null;
+      for (var future : executor.invokeAll(tasks)) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+        }
+      }
+      if (failure instanceof SQLException) {
+        throw (SQLException) failure;
+      } else if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      } else if (failure instanceof Error) {
+        throw (Error) failure;
+      } else if (failure != null) {
+        throw new DbSetupRuntimeException(failure);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DbSetupRuntimeException("interrupted while loading tables", e);
+    }
+  }
+
+  private void load(Destination destination, int i, BinderConfiguration configuration) throws SQLException {
+    try (var connection = destination.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        execute(i, connection, configuration);
+        connection.commit();
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return operations.toString();
+  }
+}
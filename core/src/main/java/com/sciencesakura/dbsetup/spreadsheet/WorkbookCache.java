@@ -0,0 +1,279 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A process-wide cache of the parsed Excel files.
+ *
+ * <p>The cache is used by the {@code Import} operations built with {@link Import.Builder#cached()}.
+ * The contents of the worksheets are cached with the following key, so that the Excel file is parsed only once
+ * even if it is imported by many tests:</p>
+ * <ul>
+ *   <li>the location of the Excel file</li>
+ *   <li>the settings which affect parsing (the sheets to include and exclude, the margins and so on)</li>
+ *   <li>the size and the last modified time of the Excel file if it is a regular file,
+ *       otherwise the SHA-256 digest of its contents</li>
+ * </ul>
+ *
+ * <p>The default values and the value generators are not a part of the key because they are applied to the cached
+ * contents every time the operation is built. The table name resolver is a part of the key only if the column types
+ * are declared, because the declared types are looked up by the resolved table names while parsing.</p>
+ *
+ * <p>The cache holds at most {@value #DEFAULT_MAXIMUM_SIZE} Excel files by default,
+ * and evicts the least recently used one when it is full.</p>
+ *
+ * @author sciencesakura
+ */
+public final class WorkbookCache {
+
+  /**
+   * The default maximum number of the Excel files held in the cache.
+   */
+  public static final int DEFAULT_MAXIMUM_SIZE = 32;
+
+  private static final Object lock = new Object();
+
+  private static final LinkedHashMap<List<Object>, List<SheetData>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private static int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+  private static long hitCount;
+
+  private static long missCount;
+
+  private static long evictionCount;
+
+  private WorkbookCache() {
+  }
+
+  /**
+   * Sets the maximum number of the Excel files held in the cache.
+   * If the cache holds more files than the new maximum, the least recently used ones are evicted.
+   *
+   * @param maximumSize the maximum number of the Excel files, must be non-negative
+   * @throws IllegalArgumentException if the argument is less than {@code 0}
+   */
+  public static void maximumSize(int maximumSize) {
+    if (maximumSize < 0) {
+      throw new IllegalArgumentException("maximumSize must be greater than or equal to 0");
+    }
+    synchronized (lock) {
+      WorkbookCache.maximumSize = maximumSize;
+      evict();
+    }
+  }
+
+  /**
+   * Removes all the cached Excel files and resets the statistics.
+   */
+  public static void clear() {
+    synchronized (lock) {
+      entries.clear();
+      hitCount = 0;
+      missCount = 0;
+      evictionCount = 0;
+    }
+  }
+
+  /**
+   * Returns a snapshot of the statistics of the cache.
+   *
+   * @return the statistics
+   */
+  public static Stats stats() {
+    synchronized (lock) {
+      return new Stats(hitCount, missCount, evictionCount, entries.size());
+    }
+  }
+
+  static List<SheetData> get(Import.Builder builder) {
+    var key = key(builder);
+    synchronized (lock) {
+      var sheets = entries.get(key);
+      if (sheets != null) {
+        hitCount++;
+        return sheets;
+      }
+      missCount++;
+    }
+    var sheets = OperationBuilder.read(builder);
+    synchronized (lock) {
+      entries.put(key, sheets);
+      evict();
+    }
+    return sheets;
+  }
+
+  private static void evict() {
+    var it = entries.values().iterator();
+    while (maximumSize < entries.size()) {
+      it.next();
+      it.remove();
+      evictionCount++;
+    }
+  }
+
+  private static List<Object> key(Import.Builder builder) {
+    return List.of(builder.location.toExternalForm(), fingerprint(builder.location), settings(builder));
+  }
+
+  /**
+   * Returns the settings which affect the contents of the parsed worksheets, and the budget checked while parsing them.
+   */
+  static List<Object> settings(Import.Builder builder) {
+    var source = builder.source;
+    return List.of(builder.format.name(), source == null ? "" : source.getClass().getName(), builder.charset.name(),
+        patterns(builder.include), patterns(builder.exclude),
+        builder.left, builder.top, builder.skipAfterHeader, builder.maxRows, builder.stopAtBlankRow,
+        builder.streaming, builder.formulaMode.name(), columnTypes(builder.columnTypes),
+        builder.columnTypes.isEmpty() ? "" : resolver(builder),
+        // the budget is checked only while parsing, so the worksheets cached with another budget are not reused
+        builder.maxBytes, builder.maxCells);
+  }
+
+  /**
+   * Returns the entries of the table name resolver given as a map, or the identity of the function,
+   * because the functions cannot be compared by their behavior.
+   */
+  static String resolver(Import.Builder builder) {
+    var resolverMap = builder.resolverMap;
+    return resolverMap == null ? identity(builder.resolver) : new TreeMap<>(resolverMap).toString();
+  }
+
+  static String identity(Object obj) {
+    return obj.getClass().getName() + '@' + Integer.toHexString(System.identityHashCode(obj));
+  }
+
+  private static String columnTypes(Map<String, Map<String, ColumnType>> columnTypes) {
+    // sorted so that the key does not depend on the order of the declarations
+    var sorted = new TreeMap<String, Map<String, ColumnType>>();
+    columnTypes.forEach((table, types) -> sorted.put(table, new TreeMap<>(types)));
+    return sorted.toString();
+  }
+
+  private static List<String> patterns(Pattern @Nullable [] patterns) {
+    if (patterns == null) {
+      return List.of();
+    }
+    var list = new ArrayList<String>(patterns.length);
+    for (var pattern : patterns) {
+      list.add(pattern.flags() + "/" + pattern.pattern());
+    }
+    return list;
+  }
+
+  private static String fingerprint(URL location) {
+    if (!"file".equals(location.getProtocol())) {
+      return digest(location);
+    }
+    try {
+      var path = Path.of(location.toURI());
+      return Files.size(path) + "@" + Files.getLastModifiedTime(path).toMillis();
+    } catch (IOException | URISyntaxException e) {
+      throw new DbSetupRuntimeException("failed to open " + location, e);
+    }
+  }
+
+  /**
+   * Returns the SHA-256 digest of the contents of the given location.
+   * The path of a {@code memory:} URL is returned as it is, because it is already the digest of the contents.
+   */
+  static String digest(URL location) {
+    if (MemoryLocation.PROTOCOL.equals(location.getProtocol())) {
+      return location.getPath();
+    }
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      try (var in = new DigestInputStream(location.openStream(), digest)) {
+        in.transferTo(OutputStream.nullOutputStream());
+      }
+      return Base64.getEncoder().encodeToString(digest.digest());
+    } catch (IOException | NoSuchAlgorithmException e) {
+      throw new DbSetupRuntimeException("failed to open " + location, e);
+    }
+  }
+
+  /**
+   * The statistics of {@link WorkbookCache}.
+   *
+   * @author sciencesakura
+   */
+  public static final class Stats {
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long evictionCount;
+
+    private final int size;
+
+    private Stats(long hitCount, long missCount, long evictionCount, int size) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+      this.size = size;
+    }
+
+    /**
+     * Returns the number of times the cached contents were used.
+     *
+     * @return the number of cache hits
+     */
+    public long hitCount() {
+      return hitCount;
+    }
+
+    /**
+     * Returns the number of times the Excel file was parsed because it was not cached.
+     *
+     * @return the number of cache misses
+     */
+    public long missCount() {
+      return missCount;
+    }
+
+    /**
+     * Returns the number of the Excel files evicted from the cache.
+     *
+     * @return the number of evictions
+     */
+    public long evictionCount() {
+      return evictionCount;
+    }
+
+    /**
+     * Returns the number of the Excel files held in the cache.
+     *
+     * @return the number of cached Excel files
+     */
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public String toString() {
+      return "WorkbookCache.Stats{hitCount=" + hitCount + ", missCount=" + missCount
+          + ", evictionCount=" + evictionCount + ", size=" + size + '}';
+    }
+  }
+}
@@ -0,0 +1,367 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.IStabilityClassifier;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.jspecify.annotations.Nullable;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+/**
+ * Reads the Excel file (.xlsx or .xls) with the user model of Apache POI.
+ *
+ * <p>The whole workbook is loaded in memory, and the formulas are evaluated according to
+ * {@link Import.Builder#formulaMode}. The worksheets can be read concurrently, but the evaluator is not
+ * thread-safe, so that the formulas are evaluated when the cursor is opened if the worksheets are read
+ * by the executor.</p>
+ */
+final class WorkbookReader implements SpreadsheetSource {
+
+  private final Import.Builder builder;
+
+  private final Workbook workbook;
+
+  private final @Nullable FormulaEvaluator evaluator;
+
+  private final @Nullable EvaluationCounter counter;
+
+  private final DateStyles styles;
+
+  private int index;
+
+  private WorkbookReader(Import.Builder builder, Workbook workbook) {
+    this.builder = builder;
+    this.workbook = workbook;
+    switch (builder.formulaMode) {
+      case CACHED_RESULT:
+        evaluator = null;
+        counter = null;
+        break;
+      case EVALUATE_WITH_CACHE:
+        counter = new EvaluationCounter(workbook);
+        evaluator = counter.createFormulaEvaluator();
+        break;
+      default:
+        evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        counter = null;
+        break;
+    }
+    styles = DateStyles.of(workbook);
+  }
+
+  static SpreadsheetSource open(Import.Builder builder, LongAdder bytes) throws IOException {
+    return new WorkbookReader(builder, open(builder.location, bytes));
+  }
+
+  private static Workbook open(URL location, LongAdder bytes) throws IOException {
+    if ("file".equals(location.getProtocol())) {
+      try {
+        // the file is read with the random access instead of being buffered in memory
+        var file = new File(location.toURI());
+        bytes.add(file.length());
+        return WorkbookFactory.create(file, null, true);
+      } catch (URISyntaxException e) {
+        throw new IOException(e);
+      }
+    }
+    return WorkbookFactory.create(new OperationBuilder.CountingInputStream(location.openStream(), bytes));
+  }
+
+  @Override
+  @Nullable
+  public Sheet next() {
+    while (index < workbook.getNumberOfSheets()) {
+      var i = index++;
+      if (workbook.isSheetHidden(i) || workbook.isSheetVeryHidden(i)) {
+        continue;
+      }
+      var sheet = workbook.getSheetAt(i);
+      return new Sheet() {
+
+        @Override
+        public String name() {
+          return sheet.getSheetName();
+        }
+
+        @Override
+        public Cursor open() {
+          if (builder.executor == null || evaluator == null) {
+            return new PoiCursor(sheet, evaluator, counter, builder.formulaMode, styles);
+          }
+          // the evaluator is not thread-safe, so the formulas are evaluated before the worksheets are read
+          var cursor = new PoiCursor(sheet, null, null, builder.formulaMode, styles);
+          cursor.evaluateFormulaCells(evaluator, counter);
+          return cursor;
+        }
+      };
+    }
+    return null;
+  }
+
+  @Override
+  public boolean concurrent() {
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    workbook.close();
+  }
+
+  private static String a1(Cell cell) {
+    return new CellReference(cell).formatAsString();
+  }
+
+  @Nullable
+  private static Object value(Cell cell, @Nullable FormulaEvaluator evaluator, FormulaMode mode,
+                              DateStyles styles) {
+    var type = cell.getCellType();
+    if (type == CellType.FORMULA) {
+      if (evaluator != null) {
+        if (mode == FormulaMode.EVALUATE) {
+          return value(evaluator.evaluateInCell(cell), evaluator, mode, styles);
+        }
+        // the formula is kept, so the results cached by the evaluator remain valid for the other cells
+        evaluator.evaluateFormulaCell(cell);
+      }
+      type = cell.getCachedFormulaResultType();
+    }
+    switch (type) {
+      case NUMERIC:
+        return styles.isDate(cell) ? cell.getDateCellValue() : cell.getNumericCellValue();
+      case STRING:
+        return string(cell);
+      case BLANK:
+        return null;
+      case BOOLEAN:
+        return cell.getBooleanCellValue();
+      case ERROR:
+        throw new DbSetupRuntimeException("error value contained: " + a1(cell));
+      default:
+        throw new DbSetupRuntimeException("unsupported type: " + a1(cell));
+    }
+  }
+
+  @Nullable
+  private static String string(Cell cell) {
+    var value = cell.getStringCellValue();
+    if (value.isEmpty() && cell instanceof XSSFCell) {
+      // the shared string cell without the index is blank, the same as the streaming reader
+      var ct = ((XSSFCell) cell).getCTCell();
+      if (ct.getT() == STCellType.S && (!ct.isSetV() || ct.getV().isEmpty())) {
+        return null;
+      }
+    }
+    return value;
+  }
+
+  private static final class PoiCursor implements Cursor, SheetRow {
+
+    private final org.apache.poi.ss.usermodel.Sheet sheet;
+
+    private final @Nullable FormulaEvaluator evaluator;
+
+    private final @Nullable EvaluationCounter counter;
+
+    private final FormulaMode mode;
+
+    private final DateStyles styles;
+
+    private Row row;
+
+    private Iterator<Cell> cells = Collections.emptyIterator();
+
+    private @Nullable Cell cell;
+
+    private int formulas;
+
+    private int formulaCacheHits;
+
+    private int cachedFormulas;
+
+    PoiCursor(org.apache.poi.ss.usermodel.Sheet sheet, @Nullable FormulaEvaluator evaluator,
+              @Nullable EvaluationCounter counter, FormulaMode mode, DateStyles styles) {
+      this.sheet = sheet;
+      this.evaluator = evaluator;
+      this.counter = counter;
+      this.mode = mode;
+      this.styles = styles;
+    }
+
+    /**
+     * Evaluates the formulas of the worksheet before it is read.
+     */
+    void evaluateFormulaCells(FormulaEvaluator evaluator, @Nullable EvaluationCounter counter) {
+      var evaluations = counter == null ? 0 : counter.evaluations;
+      var hits = counter == null ? 0 : counter.hits;
+      for (var r : sheet) {
+        for (var c : r) {
+          if (c.getCellType() == CellType.FORMULA) {
+            evaluator.evaluateFormulaCell(c);
+            formulas++;
+          }
+        }
+      }
+      if (counter != null) {
+        formulas = counter.evaluations - evaluations;
+        formulaCacheHits = counter.hits - hits;
+      }
+    }
+
+    @Override
+    public void read(Predicate<SheetRow> action) {
+      var counter = this.counter;
+      var evaluations = counter == null ? 0 : counter.evaluations;
+      var hits = counter == null ? 0 : counter.hits;
+      for (var r : sheet) {
+        row = r;
+        cells = r.cellIterator();
+        cell = null;
+        if (!action.test(this)) {
+          break;
+        }
+      }
+      if (counter != null) {
+        formulas += counter.evaluations - evaluations;
+        formulaCacheHits += counter.hits - hits;
+      }
+    }
+
+    @Override
+    public int formulas() {
+      return formulas;
+    }
+
+    @Override
+    public int formulaCacheHits() {
+      return formulaCacheHits;
+    }
+
+    @Override
+    public int cachedFormulas() {
+      return cachedFormulas;
+    }
+
+    @Override
+    public int index() {
+      return row.getRowNum();
+    }
+
+    @Override
+    public int lastCellNum() {
+      return Math.max(row.getLastCellNum(), 0);
+    }
+
+    @Override
+    public int nextColumn(int column) {
+      // the present cells are iterated in ascending order of the column, instead of looking up every column
+      var cell = this.cell;
+      while (cell == null || cell.getColumnIndex() < column) {
+        if (!cells.hasNext()) {
+          this.cell = null;
+          return lastCellNum();
+        }
+        cell = cells.next();
+      }
+      this.cell = cell;
+      return cell.getColumnIndex();
+    }
+
+    @Override
+    @Nullable
+    public Object value(int column) {
+      var current = this.cell;
+      var cell = current != null && current.getColumnIndex() == column ? current : row.getCell(column);
+      if (cell == null) {
+        return null;
+      }
+      if (cell.getCellType() == CellType.FORMULA) {
+        if (evaluator == null) {
+          if (mode == FormulaMode.CACHED_RESULT) {
+            cachedFormulas++;
+          }
+        } else if (counter == null) {
+          formulas++;
+        }
+      }
+      return WorkbookReader.value(cell, evaluator, mode, styles);
+    }
+  }
+
+  /**
+   * Counts the formulas evaluated by the formula evaluator and the ones whose results are reused from its cache.
+   *
+   * <p>Apache POI does not expose the statistics of its evaluation cache, but asks the stability classifier
+   * about every cell the evaluator reads, including the cells referenced by the formulas. The first read of
+   * a formula cell evaluates it, and the following reads return the cached result. The classifier answers that
+   * no cell is final, which is the same as having no classifier, so that the evaluation is not changed.</p>
+   */
+  private static final class EvaluationCounter implements IStabilityClassifier {
+
+    private final Workbook workbook;
+
+    private final Set<Long> evaluated = new HashSet<>();
+
+    int evaluations;
+
+    int hits;
+
+    EvaluationCounter(Workbook workbook) {
+      this.workbook = workbook;
+    }
+
+    FormulaEvaluator createFormulaEvaluator() {
+      if (workbook instanceof HSSFWorkbook) {
+        return HSSFFormulaEvaluator.create((HSSFWorkbook) workbook, this, null);
+      }
+      // poi-ooxml is loaded only for the .xlsx files
+      return Xssf.createFormulaEvaluator(workbook, this);
+    }
+
+    @Override
+    public boolean isCellFinal(int sheetIndex, int rowIndex, int columnIndex) {
+      var row = workbook.getSheetAt(sheetIndex).getRow(rowIndex);
+      var cell = row == null ? null : row.getCell(columnIndex);
+      if (cell != null && cell.getCellType() == CellType.FORMULA) {
+        if (evaluated.add((long) sheetIndex << 40 | (long) rowIndex << 16 | columnIndex)) {
+          evaluations++;
+        } else {
+          hits++;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class Xssf {
+
+    private Xssf() {
+    }
+
+    static FormulaEvaluator createFormulaEvaluator(Workbook workbook, IStabilityClassifier classifier) {
+      return XSSFFormulaEvaluator.create((XSSFWorkbook) workbook, classifier, null);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+// SPDX-License-Identifier: MIT
+
+package com.sciencesakura.dbsetup.spreadsheet;
+
+import static java.util.Objects.requireNonNull;
+
+import com.ninja_squad.dbsetup.bind.BinderConfiguration;
+import com.ninja_squad.dbsetup.operation.Operation;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An operation which imports several Excel files as a whole.
+ *
+ * <p>The instance is created by {@link Import#workbooks(Import.Builder...)}. Each Excel file is read with the
+ * settings of its own {@link Import.Builder}, and the files are read concurrently on a bounded pool of threads
+ * shared by all of them, which are the virtual threads if the runtime supports them. The tables of all the files
+ * are inserted by one operation, in the order of the files and the worksheets, or by the foreign keys between
+ * all the tables.</p>
+ * <pre>{@code
+ * var operation = Import.workbooks(
+ *         excel("master-data.xlsx").cached(),
+ *         excel("orders.xlsx").streaming())
+ *     .orderByForeignKeys()
+ *     .build();
+ * }</pre>
+ *
+ * @author sciencesakura
+ */
+public final class Workbooks implements Operation {
+
+  private final Operation internalOperation;
+
+  private Workbooks(Operation internalOperation) {
+    this.internalOperation = internalOperation;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void execute(Connection connection, BinderConfiguration configuration) throws SQLException {
+    internalOperation.execute(connection, configuration);
+  }
+
+  @Override
+  public String toString() {
+    return internalOperation.toString();
+  }
+
+  /**
+   * A builder to create the {@code Workbooks} operation.
+   *
+   * <p>The settings of this builder are applied to all the Excel files in place of the same settings of
+   * their builders: the ordering of tables by foreign keys, and the listener of measurements if it is given.
+   * The builders of the Excel files are not modified, and are marked as built only if all of them are valid.
+   * The lazy parsing of the builders is ignored because all the files are read when the operation is built,
+   * and the builders of the chunked import, the incremental import and the parallel loading are not accepted.</p>
+   *
+   * @author sciencesakura
+   */
+  public static final class Builder {
+
+    private final List<Import.Builder> builders;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private boolean orderByForeignKeys;
+
+    private @Nullable ImportListener listener;
+
+    private boolean built;
+
+    Builder(List<Import.Builder> builders) {
+      this.builders = builders;
+    }
+
+    /**
+     * Sets the maximum number of the Excel files read at the same time.
+     * By default, it is the number of the available processors.
+     *
+     * @param parallelism the maximum number of the Excel files read at the same time, must be positive
+     * @return the reference to this object
+     * @throws IllegalArgumentException if the argument is less than or equal to {@code 0}
+     */
+    public Builder parallelism(int parallelism) {
+      if (parallelism <= 0) {
+        throw new IllegalArgumentException("parallelism must be greater than 0");
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Enables the ordering of the tables of all the Excel files by foreign keys.
+     * By default, the tables are inserted in the order of the Excel files and their worksheets.
+     *
+     * @return the reference to this object
+     * @see Import.Builder#orderByForeignKeys()
+     */
+    public Builder orderByForeignKeys() {
+      this.orderByForeignKeys = true;
+      return this;
+    }
+
+    /**
+     * Sets the listener which receives the measurements of all the Excel files.
+     *
+     * @param listener the listener
+     * @return the reference to this object
+     * @see Import.Builder#listener(ImportListener)
+     */
+    public Builder listener(ImportListener listener) {
+      this.listener = requireNonNull(listener, "listener must not be null");
+      return this;
+    }
+
+    /**
+     * Reads the Excel files and builds a new {@code Workbooks} operation.
+     *
+     * @return the new {@code Workbooks} instance
+     * @throws IllegalStateException    if this builder or one of the builders of the Excel files has already built
+     *                                  operation, or the same builder is given twice
+     * @throws IllegalArgumentException if one of the builders of the Excel files is for the chunked import,
+     *                                  the incremental import or the parallel loading
+     */
+    public Workbooks build() {
+      if (built) {
+        throw new IllegalStateException("already built");
+      }
+      // all the builders are checked first, so that none of them is claimed if one of them is invalid
+      var checked = Collections.newSetFromMap(new IdentityHashMap<Import.Builder, Boolean>());
+      for (var builder : builders) {
+        if (!checked.add(builder)) {
+          throw new IllegalStateException("already built");
+        }
+        builder.check();
+        if (builder.chunkSize != 0 || !builder.keyColumns.isEmpty() || builder.loadDestination != null) {
+          throw new IllegalArgumentException("chunked import, incremental import and parallel loading "
+              + "cannot be combined with other workbooks: " + builder.location);
+        }
+      }
+      built = true;
+      var tasks = new ArrayList<Supplier<TableOperations>>(builders.size());
+      for (var builder : builders) {
+        var settings = builder.claim();
+        settings.orderByForeignKeys = false;
+        if (listener != null) {
+          settings.listener = listener;
+        }
+        tasks.add(() -> (TableOperations) OperationBuilder.build(settings));
+      }
+      List<TableOperations> parts;
+      if (builders.size() < 2 || parallelism == 1) {
+        parts = OperationBuilder.invokeAll(tasks, null);
+      } else {
+        var executor = newExecutor(Math.min(parallelism, builders.size()));
+        try {
+          parts = OperationBuilder.invokeAll(tasks, executor);
+        } finally {
+          executor.shutdownNow();
+        }
+      }
+      return new Workbooks(TableOperations.concat(parts, orderByForeignKeys, listener));
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+      var factory = virtualThreadFactory();
+      return factory == null ? Executors.newFixedThreadPool(threads) : Executors.newFixedThreadPool(threads, factory);
+    }
+
+    /**
+     * Returns the factory of the virtual threads, or {@code null} if the runtime does not support them.
+     */
+    private static @Nullable ThreadFactory virtualThreadFactory() {
+      try {
+        // Thread.ofVirtual().factory() is called reflectively to keep running on Java 11
+        var ofVirtual = Thread.class.getMethod("ofVirtual").invoke(null);
+        return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(ofVirtual);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        return null;
+      }
+    }
+  }
+}
@@ -2,26 +2,51 @@
 
 package com.sciencesakura.dbsetup.spreadsheet;
 
+import static com.ninja_squad.dbsetup.Operations.deleteAllFrom;
+import static com.ninja_squad.dbsetup.Operations.insertInto;
 import static com.ninja_squad.dbsetup.Operations.sequenceOf;
 import static com.ninja_squad.dbsetup.Operations.sql;
 import static com.ninja_squad.dbsetup.Operations.truncate;
 import static com.sciencesakura.dbsetup.spreadsheet.Import.excel;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.db.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.ninja_squad.dbsetup.DbSetup;
 import com.ninja_squad.dbsetup.DbSetupRuntimeException;
+import com.ninja_squad.dbsetup.DbSetupTracker;
+import com.ninja_squad.dbsetup.bind.DefaultBinderConfiguration;
 import com.ninja_squad.dbsetup.destination.Destination;
 import com.ninja_squad.dbsetup.destination.DriverManagerDestination;
 import com.ninja_squad.dbsetup.generator.ValueGenerators;
+import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.regex.Pattern;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import org.assertj.db.type.AssertDbConnection;
 import org.assertj.db.type.AssertDbConnectionFactory;
 import org.assertj.db.type.Changes;
@@ -29,6 +54,10 @@ import org.jspecify.annotations.NullUnmarked;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 @NullUnmarked
 class ImportTest {
@@ -128,7 +157,7 @@ class ImportTest {
 
     @Test
     void throw_npe_if_location_is_null() {
-      assertThatThrownBy(() -> excel(null))
+      assertThatThrownBy(() -> excel((String) null))
           .isInstanceOf(NullPointerException.class)
           .hasMessage("location must not be null");
     }
@@ -165,6 +194,79 @@ class ImportTest {
     }
   }
 
+  @Nested
+  class Sources {
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(table_11), truncate("table_11"))).launch();
+    }
+
+    @Test
+    void import_from_path() throws Exception {
+      var operation = excel(resource("Margin/no_margin.xlsx")).include("table_11").build();
+      new DbSetup(destination, operation).launch();
+      assertThat(connection.table("table_11").build())
+          .column("id").hasValues(1)
+          .column("name").hasValues("Alice");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void import_from_file(boolean streaming) throws Exception {
+      var builder = excel(resource("Margin/no_margin.xlsx").toFile()).include("table_11");
+      if (streaming) {
+        builder.streaming();
+      }
+      new DbSetup(destination, builder.build()).launch();
+      assertThat(connection.table("table_11").build())
+          .column("id").hasValues(1)
+          .column("name").hasValues("Alice");
+    }
+
+    @Test
+    void import_from_bytes() throws Exception {
+      var operation = excel(Files.readAllBytes(resource("Margin/no_margin.xlsx"))).include("table_11").build();
+      new DbSetup(destination, operation).launch();
+      assertThat(connection.table("table_11").build())
+          .column("id").hasValues(1)
+          .column("name").hasValues("Alice");
+    }
+
+    @Test
+    void import_from_input_stream() throws Exception {
+      try (var in = Files.newInputStream(resource("Margin/no_margin.xlsx"))) {
+        var operation = excel(in).include("table_11").cached().build();
+        new DbSetup(destination, operation).launch();
+      }
+      assertThat(connection.table("table_11").build())
+          .column("id").hasValues(1)
+          .column("name").hasValues("Alice");
+    }
+
+    @Test
+    void equal_if_same_bytes() throws Exception {
+      var bytes = Files.readAllBytes(resource("Margin/no_margin.xlsx"));
+      assertEquals(excel(bytes).build(), excel(bytes.clone()).build());
+    }
+
+    @Test
+    void throw_iae_if_path_has_been_not_found() {
+      var path = Path.of("ExcelFile/not_found.xlsx");
+      assertThatThrownBy(() -> excel(path))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage(path + " not found");
+    }
+
+    Path resource(String name) throws Exception {
+      return Path.of(getClass().getClassLoader().getResource(name).toURI());
+    }
+  }
+
   @Nested
   class TableNames {
 
@@ -809,5 +911,2266 @@ class ImportTest {
           .isInstanceOf(NullPointerException.class)
           .hasMessage("valueGenerator must not be null");
     }
+
+    @Test
+    void throws_iae_if_default_value_is_specified() {
+      var generator = ValueGenerators.sequence();
+      var builder = excel("WithGeneratedValue/with_generated_value.xlsx")
+          .withDefaultValue("table_11", "id", 1);
+      assertThatThrownBy(() -> builder.withGeneratedValue("table_11", "id", generator))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("default value already specified: table_11.id");
+    }
+
+    @Test
+    void throws_iae_if_value_generator_is_specified() {
+      var builder = excel("WithGeneratedValue/with_generated_value.xlsx")
+          .withGeneratedValue("table_11", "id", ValueGenerators.sequence());
+      assertThatThrownBy(() -> builder.withDefaultValue("table_11", "id", 1))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("value generator already specified: table_11.id");
+    }
+  }
+
+  @Nested
+  class Streaming {
+
+    @BeforeEach
+    void setUp() {
+      var data_types = "create table if not exists data_types ("
+          + "id uuid not null,"
+          + "num1 smallint,"
+          + "num2 integer,"
+          + "num3 bigint,"
+          + "num4 real,"
+          + "num5 decimal(7,3),"
+          + "text1 char(5),"
+          + "text2 varchar(100),"
+          + "date1 timestamp,"
+          + "date2 date,"
+          + "date3 time,"
+          + "bool1 boolean,"
+          + "primary key (id)"
+          + ")";
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(data_types, table_11, table_12),
+          truncate("data_types", "table_11", "table_12"))).launch();
+      changes = connection.changes().build();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void import_data_types(boolean sharedStringsOnDisk) {
+      changes.setStartPointNow();
+      var builder = excel("DataTypes/data_types.xlsx").streaming();
+      if (sharedStringsOnDisk) {
+        builder.sharedStringsOnDisk();
+      }
+      var operation = builder.build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(3)
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 1))
+          .value("num1").isEqualTo(1000)
+          .value("num2").isEqualTo(20000)
+          .value("num3").isEqualTo(3000000000L)
+          .value("num4").isEqualTo(400.75)
+          .value("num5").isEqualTo(new BigDecimal("5000.333"))
+          .value("text1").isEqualTo("aaa  ")
+          .value("text2").isEqualTo("bbb")
+          .value("date1").isEqualTo(LocalDateTime.parse("2001-02-03T10:20:30.456"))
+          .value("date2").isEqualTo(LocalDate.parse("2001-02-03"))
+          .value("date3").isEqualTo(LocalTime.parse("10:20:30"))
+          .value("bool1").isTrue()
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 2))
+          .value("num1").isNull()
+          .value("num2").isNull()
+          .value("num3").isNull()
+          .value("num4").isNull()
+          .value("num5").isNull()
+          .value("text1").isNull()
+          .value("text2").isNull()
+          .value("date1").isNull()
+          .value("date2").isNull()
+          .value("date3").isNull()
+          .value("bool1").isFalse()
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 3))
+          .value("num1").isEqualTo(1001)
+          .value("num2").isEqualTo(20001)
+          .value("num3").isEqualTo(3000000001L)
+          .value("num4").isEqualTo(401.75)
+          .value("num5").isEqualTo(new BigDecimal("5001.333"))
+          .value("text1").isNull()
+          .value("text2").isEqualTo("aaabbb")
+          .value("date1").isEqualTo(LocalDateTime.parse("2001-02-04T10:20:30.456"))
+          .value("date2").isEqualTo(LocalDate.parse("2001-02-04"))
+          .value("date3").isNull()
+          .value("bool1").isTrue();
+    }
+
+    @Test
+    void import_with_margin() {
+      changes.setStartPointNow();
+      var operation = excel("Margin/left_top_margin.xlsx").margin(2, 3).streaming().build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(2)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Bob");
+    }
+
+    @Test
+    void import_with_margin_between_header_and_data() {
+      changes.setStartPointNow();
+      var operation = excel("Margin/margin_between_header_and_data.xlsx").skipAfterHeader(1).streaming().build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(2)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Bob");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void read_shared_string_without_value_as_blank(boolean streaming) {
+      var builder = excel("Streaming/empty_shared_string.xlsx");
+      if (streaming) {
+        builder.streaming();
+      }
+      new DbSetup(destination, builder.build()).launch();
+      assertThat(connection.table("table_11").build())
+          .hasNumberOfRows(1)
+          .row()
+          .value("id").isEqualTo(1)
+          .value("name").isNull();
+      assertThat(connection.table("table_12").build())
+          .hasNumberOfRows(1)
+          .row()
+          .value("id").isEqualTo(2)
+          .value("name").isNull();
+    }
+
+    @Test
+    void throw_dsre_if_header_row_is_not_found() {
+      var builder = excel("Margin/no_margin.xlsx").top(8).streaming();
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("header row not found: table_11[8]");
+    }
+
+    @Test
+    void throw_dsre_if_header_row_contains_blank() {
+      var builder = excel("ExcelFile/invalid_sheets.xlsx").include("blank_in_header").streaming();
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("header cell must not be blank: blank_in_header!B1");
+    }
+
+    @Test
+    void throw_dsre_if_header_row_contains_non_string_value() {
+      var builder = excel("ExcelFile/invalid_sheets.xlsx").include("non_string_in_header").streaming();
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("header cell must be string type: non_string_in_header!B1");
+    }
+
+    @Test
+    void throw_dsre_if_header_row_contains_error() {
+      var builder = excel("ExcelFile/invalid_sheets.xlsx").include("error_in_header").streaming();
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("error value contained: error_in_header!B1");
+    }
+  }
+
+  @Nested
+  class Cache {
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(table_11, table_12),
+          truncate("table_11", "table_12"))).launch();
+      changes = connection.changes().build();
+      WorkbookCache.maximumSize(WorkbookCache.DEFAULT_MAXIMUM_SIZE);
+      WorkbookCache.clear();
+    }
+
+    @Test
+    void reuse_parsed_excel_file() {
+      excel("Margin/no_margin.xlsx").cached().build();
+      changes.setStartPointNow();
+      var operation = excel("Margin/no_margin.xlsx").cached().build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(2)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Bob");
+      var stats = WorkbookCache.stats();
+      assertEquals(1, stats.hitCount());
+      assertEquals(1, stats.missCount());
+      assertEquals(1, stats.size());
+    }
+
+    @Test
+    void apply_resolver_to_cached_contents() {
+      excel("Margin/no_margin.xlsx").cached().build();
+      changes.setStartPointNow();
+      var operation = excel("Margin/no_margin.xlsx").cached()
+          .resolver(Map.of("table_11", "table_12", "table_12", "table_11")).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(2)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Bob")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("name").isEqualTo("Alice");
+      assertEquals(1, WorkbookCache.stats().hitCount());
+    }
+
+    @Test
+    void reuse_parsed_bytes() throws Exception {
+      var bytes = bytes("Margin/no_margin.xlsx");
+      excel(bytes).cached().build();
+      excel(bytes.clone()).cached().build();
+      var stats = WorkbookCache.stats();
+      assertEquals(1, stats.hitCount());
+      assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    void use_path_of_memory_location_as_digest() throws Exception {
+      var location = MemoryLocation.of(bytes("Margin/no_margin.xlsx"));
+      assertEquals(location.getPath(), WorkbookCache.digest(location));
+    }
+
+    private byte[] bytes(String name) throws IOException {
+      try (var in = getClass().getClassLoader().getResourceAsStream(name)) {
+        return in.readAllBytes();
+      }
+    }
+
+    @Test
+    void parse_again_if_settings_differ() {
+      excel("Margin/no_margin.xlsx").cached().build();
+      excel("Margin/no_margin.xlsx").cached().include("table_11").build();
+      var stats = WorkbookCache.stats();
+      assertEquals(0, stats.hitCount());
+      assertEquals(2, stats.missCount());
+      assertEquals(2, stats.size());
+    }
+
+    @Test
+    void evict_least_recently_used_excel_file() {
+      WorkbookCache.maximumSize(1);
+      excel("Margin/no_margin.xlsx").cached().build();
+      excel("Margin/top_margin.xlsx").top(5).cached().build();
+      excel("Margin/no_margin.xlsx").cached().build();
+      var stats = WorkbookCache.stats();
+      assertEquals(0, stats.hitCount());
+      assertEquals(3, stats.missCount());
+      assertEquals(2, stats.evictionCount());
+      assertEquals(1, stats.size());
+    }
+
+    @Test
+    void throws_iae_if_maximum_size_is_negative() {
+      assertThatThrownBy(() -> WorkbookCache.maximumSize(-1))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("maximumSize must be greater than or equal to 0");
+    }
+  }
+
+  @Nested
+  class BinarySnapshot {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var data_types = "create table if not exists data_types ("
+          + "id uuid not null,"
+          + "num1 smallint,"
+          + "num2 integer,"
+          + "num3 bigint,"
+          + "num4 real,"
+          + "num5 decimal(7,3),"
+          + "text1 char(5),"
+          + "text2 varchar(100),"
+          + "date1 timestamp,"
+          + "date2 date,"
+          + "date3 time,"
+          + "bool1 boolean,"
+          + "primary key (id)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(table_11, table_12, data_types),
+          truncate("table_11", "table_12", "data_types"))).launch();
+      changes = connection.changes().build();
+    }
+
+    @Test
+    void import_from_snapshot() throws IOException {
+      var snapshot = tempDir.resolve("no_margin.snapshot");
+      excel("Margin/no_margin.xlsx").snapshot(snapshot).build();
+      var written = Files.readAllBytes(snapshot);
+      changes.setStartPointNow();
+      var operation = excel("Margin/no_margin.xlsx").snapshot(snapshot).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(2)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Bob");
+      assertArrayEquals(written, Files.readAllBytes(snapshot));
+    }
+
+    @Test
+    void import_typed_values_from_snapshot() {
+      var snapshot = tempDir.resolve("data_types.snapshot");
+      excel("DataTypes/data_types.xlsx").snapshot(snapshot).build();
+      changes.setStartPointNow();
+      var operation = excel("DataTypes/data_types.xlsx").snapshot(snapshot).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(3)
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 1))
+          .value("num1").isEqualTo(1000)
+          .value("num3").isEqualTo(3000000000L)
+          .value("num5").isEqualTo(new BigDecimal("5000.333"))
+          .value("text2").isEqualTo("bbb")
+          .value("date1").isEqualTo(LocalDateTime.parse("2001-02-03T10:20:30.456"))
+          .value("date2").isEqualTo(LocalDate.parse("2001-02-03"))
+          .value("date3").isEqualTo(LocalTime.parse("10:20:30"))
+          .value("bool1").isTrue()
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 2))
+          .value("num1").isNull()
+          .value("text2").isNull()
+          .value("date1").isNull()
+          .value("bool1").isFalse();
+    }
+
+    @Test
+    void rebuild_snapshot_if_settings_are_changed() {
+      var snapshot = tempDir.resolve("no_margin.snapshot");
+      excel("Margin/no_margin.xlsx").include("table_11").snapshot(snapshot).build();
+      changes.setStartPointNow();
+      var operation = excel("Margin/no_margin.xlsx").snapshot(snapshot).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(2)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2);
+    }
+
+    @Test
+    void rebuild_broken_snapshot() throws IOException {
+      var snapshot = tempDir.resolve("no_margin.snapshot");
+      Files.write(snapshot, new byte[] {1, 2, 3});
+      changes.setStartPointNow();
+      var operation = excel("Margin/no_margin.xlsx").snapshot(snapshot).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(2);
+    }
+  }
+
+  @Nested
+  class Lazy {
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(table_11, table_12),
+          truncate("table_11", "table_12"))).launch();
+      changes = connection.changes().build();
+      WorkbookCache.clear();
+    }
+
+    @Test
+    void parse_at_first_execution() {
+      var operation = excel("Margin/no_margin.xlsx").cached().lazy().build();
+      assertEquals(0, WorkbookCache.stats().missCount());
+      changes.setStartPointNow();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(2)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Bob");
+      new DbSetup(destination, sequenceOf(truncate("table_11", "table_12"), operation)).launch();
+      var stats = WorkbookCache.stats();
+      assertEquals(0, stats.hitCount());
+      assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    void throw_dsre_at_execution() {
+      var operation = excel("Margin/no_margin.xlsx").top(8).lazy().build();
+      var dbSetup = new DbSetup(destination, operation);
+      assertThatThrownBy(dbSetup::launch)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("header row not found: table_11[8]");
+    }
+
+    @Test
+    void ignore_changes_after_build() {
+      var builder = excel("Margin/no_margin.xlsx").lazy();
+      var operation = builder.build();
+      builder.top(8).include("table_12");
+      changes.setStartPointNow();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(2);
+    }
+  }
+
+  @Nested
+  class Batch {
+
+    @BeforeEach
+    void setUp() {
+      var data_types = "create table if not exists data_types ("
+          + "id uuid not null,"
+          + "num1 smallint,"
+          + "num2 integer,"
+          + "num3 bigint,"
+          + "num4 real,"
+          + "num5 decimal(7,3),"
+          + "text1 char(5),"
+          + "text2 varchar(100),"
+          + "date1 timestamp,"
+          + "date2 date,"
+          + "date3 time,"
+          + "bool1 boolean,"
+          + "primary key (id)"
+          + ")";
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_13 = "create table if not exists table_13 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(data_types, table_11, table_12, table_13),
+          truncate("data_types", "table_11", "table_12", "table_13"))).launch();
+      changes = connection.changes().build();
+    }
+
+    @Test
+    void import_data_types() {
+      changes.setStartPointNow();
+      var operation = excel("DataTypes/data_types.xlsx").batchSize(2).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(3)
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 1))
+          .value("num1").isEqualTo(1000)
+          .value("num2").isEqualTo(20000)
+          .value("num3").isEqualTo(3000000000L)
+          .value("num4").isEqualTo(400.75)
+          .value("num5").isEqualTo(new BigDecimal("5000.333"))
+          .value("text1").isEqualTo("aaa  ")
+          .value("text2").isEqualTo("bbb")
+          .value("date1").isEqualTo(LocalDateTime.parse("2001-02-03T10:20:30.456"))
+          .value("date2").isEqualTo(LocalDate.parse("2001-02-03"))
+          .value("date3").isEqualTo(LocalTime.parse("10:20:30"))
+          .value("bool1").isTrue()
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 2))
+          .value("num1").isNull()
+          .value("num2").isNull()
+          .value("num3").isNull()
+          .value("num4").isNull()
+          .value("num5").isNull()
+          .value("text1").isNull()
+          .value("text2").isNull()
+          .value("date1").isNull()
+          .value("date2").isNull()
+          .value("date3").isNull()
+          .value("bool1").isFalse()
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 3))
+          .value("num1").isEqualTo(1001)
+          .value("num2").isEqualTo(20001)
+          .value("num3").isEqualTo(3000000001L)
+          .value("num4").isEqualTo(401.75)
+          .value("num5").isEqualTo(new BigDecimal("5001.333"))
+          .value("text1").isNull()
+          .value("text2").isEqualTo("aaabbb")
+          .value("date1").isEqualTo(LocalDateTime.parse("2001-02-04T10:20:30.456"))
+          .value("date2").isEqualTo(LocalDate.parse("2001-02-04"))
+          .value("date3").isNull()
+          .value("bool1").isTrue();
+    }
+
+    @Test
+    void import_with_default_value() {
+      changes.setStartPointNow();
+      var operation = excel("WithDefaultValue/with_default_value.xlsx")
+          .withDefaultValue("table_11", "name", "DEFAULT_1")
+          .withDefaultValue("table_13", "name", "DEFAULT_2")
+          .batchSize(1).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(5)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(10)
+          .value("name").isEqualTo("DEFAULT_1")
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(11)
+          .value("name").isEqualTo("DEFAULT_1")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(20)
+          .value("name").isEqualTo("Bob")
+          .changeOfCreationOnTable("table_13")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(30)
+          .value("name").isEqualTo("DEFAULT_2")
+          .changeOfCreationOnTable("table_13")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(31)
+          .value("name").isEqualTo("DEFAULT_2");
+    }
+
+    @Test
+    void import_with_value_generator() {
+      changes.setStartPointNow();
+      var operation = excel("WithGeneratedValue/with_generated_value.xlsx")
+          .withGeneratedValue("table_11", "id", ValueGenerators.sequence().startingAt(100))
+          .withGeneratedValue("table_13", "id", ValueGenerators.sequence().startingAt(300))
+          .batchSize(100).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(5)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(100)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(101)
+          .value("name").isEqualTo("Bob")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Charlie")
+          .changeOfCreationOnTable("table_13")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(300)
+          .value("name").isEqualTo("Dave")
+          .changeOfCreationOnTable("table_13")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(301)
+          .value("name").isEqualTo("Erin");
+    }
+
+    @Test
+    void throws_iae_if_batch_size_is_not_positive() {
+      var builder = excel("DataTypes/data_types.xlsx");
+      assertThatThrownBy(() -> builder.batchSize(0))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("batchSize must be greater than 0");
+    }
+  }
+
+  @Nested
+  class Parallel {
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_21 = "create table if not exists table_21 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_22 = "create table if not exists table_22 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(table_11, table_12, table_21, table_22),
+          truncate("table_11", "table_12", "table_21", "table_22"))).launch();
+      changes = connection.changes().build();
+    }
+
+    @Test
+    void import_all_sheets_in_order() {
+      changes.setStartPointNow();
+      var operation = excel("TableNames/table_names.xlsx").parallel().build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(4)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Bob")
+          .changeOfCreationOnTable("table_21")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(3)
+          .value("name").isEqualTo("Charlie")
+          .changeOfCreationOnTable("table_22")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(4)
+          .value("name").isEqualTo("Dave");
+    }
+
+    @Test
+    void import_all_sheets_in_order_in_streaming_mode() {
+      var executor = Executors.newFixedThreadPool(4);
+      try {
+        changes.setStartPointNow();
+        var operation = excel("TableNames/table_names.xlsx").streaming().parallel(executor).build();
+        new DbSetup(destination, operation).launch();
+        assertThat(changes.setEndPointNow())
+            .hasNumberOfChanges(4)
+            .changeOfCreationOnTable("table_11")
+            .rowAtEndPoint()
+            .value("id").isEqualTo(1)
+            .value("name").isEqualTo("Alice")
+            .changeOfCreationOnTable("table_12")
+            .rowAtEndPoint()
+            .value("id").isEqualTo(2)
+            .value("name").isEqualTo("Bob")
+            .changeOfCreationOnTable("table_21")
+            .rowAtEndPoint()
+            .value("id").isEqualTo(3)
+            .value("name").isEqualTo("Charlie")
+            .changeOfCreationOnTable("table_22")
+            .rowAtEndPoint()
+            .value("id").isEqualTo(4)
+            .value("name").isEqualTo("Dave");
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    @Test
+    void throw_dsre_of_first_invalid_sheet() {
+      var builder = excel("ExcelFile/invalid_sheets.xlsx").exclude("blank_in_header").parallel();
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("header cell must be string type: non_string_in_header!B1");
+    }
+
+    @Test
+    void throws_npe_if_executor_is_null() {
+      var builder = excel("TableNames/table_names.xlsx");
+      assertThatThrownBy(() -> builder.parallel(null))
+          .isInstanceOf(NullPointerException.class)
+          .hasMessage("executor must not be null");
+    }
+  }
+
+  @Nested
+  class ParallelLoad {
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_21 = "create table if not exists table_21 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_22 = "create table if not exists table_22 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var parent = "create table if not exists parent ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var child = "create table if not exists child ("
+          + "id integer primary key,"
+          + "parent_id integer references parent (id)"
+          + ")";
+      var grandchild = "create table if not exists grandchild ("
+          + "id integer primary key,"
+          + "child_id integer references child (id)"
+          + ")";
+      var other = "create table if not exists other ("
+          + "id integer primary key"
+          + ")";
+      new DbSetup(destination, sequenceOf(
+          sql(table_11, table_12, table_21, table_22, parent, child, grandchild, other),
+          truncate("table_11", "table_12", "table_21", "table_22", "other"),
+          deleteAllFrom("grandchild", "child", "parent"))).launch();
+      changes = connection.changes().build();
+    }
+
+    @Test
+    void import_tables_concurrently() {
+      changes.setStartPointNow();
+      var operation = excel("TableNames/table_names.xlsx").parallelLoad(destination, 4).commitBeforeParallelLoad()
+          .build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(4)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Bob")
+          .changeOfCreationOnTable("table_21")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(3)
+          .value("name").isEqualTo("Charlie")
+          .changeOfCreationOnTable("table_22")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(4)
+          .value("name").isEqualTo("Dave");
+    }
+
+    @Test
+    void import_related_tables_in_order_of_foreign_keys() {
+      changes.setStartPointNow();
+      var operation = excel("ForeignKeys/child_first.xlsx").parallelLoad(destination, 4).commitBeforeParallelLoad()
+          .build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(8)
+          .changeOfCreationOnTable("parent")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("child")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("parent_id").isEqualTo(1)
+          .changeOfCreationOnTable("grandchild")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("child_id").isEqualTo(3)
+          .changeOfCreationOnTable("other")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1);
+    }
+
+    @Test
+    void throws_if_commit_is_not_allowed() throws Exception {
+      var operation = excel("TableNames/table_names.xlsx").parallelLoad(destination, 4).build();
+      try (var conn = destination.getConnection()) {
+        conn.setAutoCommit(false);
+        new DbSetup(destination, insertInto("other").columns("id").values(1).build()).launch();
+        deleteAllFrom("other").execute(conn, DefaultBinderConfiguration.INSTANCE);
+        assertThatThrownBy(() -> operation.execute(conn, DefaultBinderConfiguration.INSTANCE))
+            .isInstanceOf(DbSetupRuntimeException.class)
+            .hasMessageStartingWith("parallel loading needs to commit the transaction");
+        conn.rollback();
+      }
+      assertThat(connection.table("other").build())
+          .hasNumberOfRows(1);
+      assertThat(connection.table("table_11").build())
+          .hasNumberOfRows(0);
+    }
+
+    @Test
+    void import_tables_concurrently_in_auto_commit_mode() throws Exception {
+      var operation = excel("TableNames/table_names.xlsx").parallelLoad(destination, 4).build();
+      try (var conn = destination.getConnection()) {
+        conn.setAutoCommit(true);
+        operation.execute(conn, DefaultBinderConfiguration.INSTANCE);
+      }
+      assertThat(connection.table("table_22").build())
+          .column("id").hasValues(4);
+    }
+
+    @Test
+    void throws_iae_if_parallelism_is_not_positive() {
+      var builder = excel("TableNames/table_names.xlsx");
+      assertThatThrownBy(() -> builder.parallelLoad(destination, 0))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("parallelism must be greater than 0");
+    }
+  }
+
+  @Nested
+  class ForeignKeyOrder {
+
+    @BeforeEach
+    void setUp() {
+      var parent = "create table if not exists parent ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var child = "create table if not exists child ("
+          + "id integer primary key,"
+          + "parent_id integer references parent (id)"
+          + ")";
+      var grandchild = "create table if not exists grandchild ("
+          + "id integer primary key,"
+          + "child_id integer references child (id)"
+          + ")";
+      var other = "create table if not exists other ("
+          + "id integer primary key"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(parent, child, grandchild, other),
+          truncate("other"), deleteAllFrom("grandchild", "child", "parent"))).launch();
+      changes = connection.changes().build();
+    }
+
+    @Test
+    void import_referenced_tables_first() {
+      changes.setStartPointNow();
+      var operation = excel("ForeignKeys/child_first.xlsx").orderByForeignKeys().build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(8)
+          .changeOfCreationOnTable("parent")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("child")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("parent_id").isEqualTo(1)
+          .changeOfCreationOnTable("grandchild")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1)
+          .value("child_id").isEqualTo(3)
+          .changeOfCreationOnTable("other")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(1);
+    }
+
+    @Test
+    void import_in_order_of_worksheets_by_default() {
+      var operation = excel("ForeignKeys/child_first.xlsx").build();
+      var dbSetup = new DbSetup(destination, operation);
+      assertThatThrownBy(dbSetup::launch)
+          .isInstanceOf(DbSetupRuntimeException.class);
+    }
+
+    @Test
+    void break_cycle_inside_cycle() {
+      // 0 references 1, and 1 and 2 reference each other
+      var parents = List.of(Set.of(1), Set.of(2), Set.of(1));
+      assertEquals(List.of(List.of(1), List.of(0, 2)), ForeignKeys.groups(parents));
+    }
+
+    @Test
+    void break_cycle_after_referenced_tables() {
+      // 0 and 1 reference each other, and 1 references 2
+      var parents = List.of(Set.of(1), Set.of(0, 2), Set.<Integer>of());
+      assertEquals(List.of(List.of(2), List.of(0), List.of(1)), ForeignKeys.groups(parents));
+    }
+
+    @Test
+    void split_names_outside_quotes() {
+      assertArrayEquals(new String[] {"\"a.b\"", "\"c.d\""}, ForeignKeys.split("\"a.b\".\"c.d\""));
+      assertArrayEquals(new String[] {"public", "parent"}, ForeignKeys.split("public.parent"));
+      assertArrayEquals(new String[] {null, "\"a.b\""}, ForeignKeys.split("\"a.b\""));
+    }
+
+    @Test
+    void compare_quoted_names_case_sensitively() throws SQLException {
+      var upper = "create table if not exists \"FK.Parent\" ("
+          + "id integer primary key"
+          + ")";
+      var mixed = "create table if not exists \"Fk.Parent\" ("
+          + "id integer primary key"
+          + ")";
+      var child = "create table if not exists fk_child ("
+          + "id integer primary key,"
+          + "parent_id integer references \"FK.Parent\" (id)"
+          + ")";
+      new DbSetup(destination, sql(upper, mixed, child)).launch();
+      try (var conn = destination.getConnection()) {
+        var parents = ForeignKeys.parents(conn, List.of("\"Fk.Parent\"", "\"FK.Parent\"", "fk_child"));
+        assertEquals(List.of(Set.of(), Set.of(), Set.of(1)), parents);
+      } finally {
+        // the other tests read every table by its unquoted name
+        new DbSetup(destination, sql("drop table fk_child", "drop table \"FK.Parent\"", "drop table \"Fk.Parent\""))
+            .launch();
+      }
+    }
+  }
+
+  @Nested
+  class Metrics {
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_21 = "create table if not exists table_21 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_22 = "create table if not exists table_22 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var formula_1 = "create table if not exists formula_1 ("
+          + "id integer primary key,"
+          + "amount integer"
+          + ")";
+      var formula_2 = "create table if not exists formula_2 ("
+          + "id integer primary key,"
+          + "amount integer"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(table_11, table_12, table_21, table_22, formula_1, formula_2),
+          truncate("table_11", "table_12", "table_21", "table_22", "formula_1", "formula_2"))).launch();
+    }
+
+    @Test
+    void report_sheets_and_tables() throws IOException {
+      var metrics = new ImportMetrics();
+      var operation = excel("TableNames/table_names.xlsx").listener(metrics).build();
+      new DbSetup(destination, operation).launch();
+      var size = Files.size(Path.of("src/test/resources/TableNames/table_names.xlsx"));
+      assertEquals(size, metrics.bytesRead());
+      var sheets = metrics.sheets();
+      assertEquals(4, sheets.size());
+      assertEquals("table_11", sheets.get(0).name());
+      assertEquals(1, sheets.get(0).rows());
+      assertEquals(2, sheets.get(0).cells());
+      assertEquals(0, sheets.get(0).formulas());
+      var tables = metrics.tables();
+      assertEquals(4, tables.size());
+      assertEquals("table_22", tables.get(3).name());
+      assertEquals(1, tables.get(3).rows());
+    }
+
+    @Test
+    void report_evaluated_formulas() {
+      var metrics = new ImportMetrics();
+      excel("Formulas/formulas.xlsx").listener(metrics).build();
+      var sheets = metrics.sheets();
+      assertEquals(2, sheets.size());
+      assertEquals(3, sheets.get(0).formulas());
+      assertEquals(3, sheets.get(1).formulas());
+    }
+
+    @Test
+    void emit_jfr_events() throws IOException {
+      var file = Files.createTempFile("import", ".jfr");
+      try (var recording = new Recording()) {
+        recording.enable("com.sciencesakura.dbsetup.spreadsheet.SheetParsed");
+        recording.enable("com.sciencesakura.dbsetup.spreadsheet.TableInserted");
+        recording.start();
+        var operation = excel("TableNames/table_names.xlsx").listener(new JfrImportListener()).build();
+        new DbSetup(destination, operation).launch();
+        recording.stop();
+        recording.dump(file);
+        var events = RecordingFile.readAllEvents(file);
+        assertEquals(4, events.stream()
+            .filter(e -> e.getEventType().getName().endsWith("SheetParsed"))
+            .count());
+        assertEquals(4, events.stream()
+            .filter(e -> e.getEventType().getName().endsWith("TableInserted"))
+            .count());
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+  }
+
+  @Nested
+  class Formulas {
+
+    @BeforeEach
+    void setUp() {
+      var formula_1 = "create table if not exists formula_1 ("
+          + "id integer primary key,"
+          + "amount integer"
+          + ")";
+      var formula_2 = "create table if not exists formula_2 ("
+          + "id integer primary key,"
+          + "amount integer"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(formula_1, formula_2), truncate("formula_1", "formula_2"))).launch();
+    }
+
+    @ParameterizedTest
+    @EnumSource(FormulaMode.class)
+    void import_formula_results(FormulaMode mode) {
+      var operation = excel("Formulas/formulas.xlsx").formulaMode(mode).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(connection.table("formula_1").build())
+          .column("amount").hasValues(10, 20, 30);
+      assertThat(connection.table("formula_2").build())
+          .column("amount").hasValues(11, 21, 31);
+    }
+
+    @Test
+    void report_cached_formulas() {
+      var metrics = new ImportMetrics();
+      excel("Formulas/formulas.xlsx").formulaMode(FormulaMode.CACHED_RESULT).listener(metrics).build();
+      var sheets = metrics.sheets();
+      assertEquals(0, sheets.get(0).formulas());
+      assertEquals(3, sheets.get(0).cachedFormulas());
+      assertEquals(0, sheets.get(1).formulas());
+      assertEquals(3, sheets.get(1).cachedFormulas());
+    }
+
+    @Test
+    void report_formula_cache_hits() {
+      var metrics = new ImportMetrics();
+      excel("Formulas/formulas.xlsx").formulaMode(FormulaMode.EVALUATE_WITH_CACHE).listener(metrics).build();
+      var sheets = metrics.sheets();
+      assertEquals(3, sheets.get(0).formulas());
+      assertEquals(0, sheets.get(0).formulaCacheHits());
+      // the cells of formula_1 referenced by formula_2 have been evaluated
+      assertEquals(3, sheets.get(1).formulas());
+      assertEquals(3, sheets.get(1).formulaCacheHits());
+    }
+
+    @Test
+    void report_formula_cache_hits_in_parallel() {
+      var metrics = new ImportMetrics();
+      excel("Formulas/formulas.xlsx").formulaMode(FormulaMode.EVALUATE_WITH_CACHE).parallel().listener(metrics)
+          .build();
+      var sheets = metrics.sheets();
+      assertEquals(6, sheets.get(0).formulas() + sheets.get(1).formulas());
+      assertEquals(3, sheets.get(0).formulaCacheHits() + sheets.get(1).formulaCacheHits());
+    }
+
+    @Test
+    void report_cached_formulas_in_streaming_mode() {
+      var metrics = new ImportMetrics();
+      excel("Formulas/formulas.xlsx").streaming().listener(metrics).build();
+      var sheets = metrics.sheets();
+      assertEquals(3, sheets.get(0).cachedFormulas());
+      assertEquals(3, sheets.get(1).cachedFormulas());
+    }
+
+    @Test
+    void throws_npe_if_mode_is_null() {
+      var builder = excel("Formulas/formulas.xlsx");
+      assertThatThrownBy(() -> builder.formulaMode(null))
+          .isInstanceOf(NullPointerException.class)
+          .hasMessage("formulaMode must not be null");
+    }
+  }
+
+  @Nested
+  class ColumnTypes {
+
+    @BeforeEach
+    void setUp() {
+      var ddl = sql("create table if not exists data_types ("
+          + "id uuid not null,"
+          + "num1 smallint,"
+          + "num2 integer,"
+          + "num3 bigint,"
+          + "num4 real,"
+          + "num5 decimal(7,3),"
+          + "text1 char(5),"
+          + "text2 varchar(100),"
+          + "date1 timestamp,"
+          + "date2 date,"
+          + "date3 time,"
+          + "bool1 boolean,"
+          + "primary key (id)"
+          + ")");
+      new DbSetup(destination, sequenceOf(ddl, truncate("data_types"))).launch();
+      changes = connection.changes().build();
+    }
+
+    @Test
+    void import_with_declared_types() {
+      changes.setStartPointNow();
+      var operation = excel("DataTypes/data_types.xlsx")
+          .withColumnType("data_types", "num3", ColumnType.LONG)
+          .withColumnType("data_types", "num4", ColumnType.DOUBLE)
+          .withColumnType("data_types", "text2", ColumnType.STRING)
+          .withColumnType("data_types", "date1", ColumnType.DATE)
+          .withColumnType("data_types", "bool1", ColumnType.BOOLEAN)
+          .batchSize(2).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(3)
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 1))
+          .value("num1").isEqualTo(1000)
+          .value("num3").isEqualTo(3000000000L)
+          .value("num4").isEqualTo(400.75)
+          .value("num5").isEqualTo(new BigDecimal("5000.333"))
+          .value("text2").isEqualTo("bbb")
+          .value("date1").isEqualTo(LocalDateTime.parse("2001-02-03T10:20:30.456"))
+          .value("date2").isEqualTo(LocalDate.parse("2001-02-03"))
+          .value("bool1").isTrue()
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 2))
+          .value("num3").isNull()
+          .value("num4").isNull()
+          .value("text2").isNull()
+          .value("date1").isNull()
+          .value("bool1").isFalse()
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 3))
+          .value("num3").isEqualTo(3000000001L)
+          .value("num4").isEqualTo(401.75)
+          .value("text2").isEqualTo("aaabbb")
+          .value("date1").isEqualTo(LocalDateTime.parse("2001-02-04T10:20:30.456"))
+          .value("bool1").isTrue();
+    }
+
+    @Test
+    void throws_if_value_does_not_match_declared_type() {
+      var builder = excel("DataTypes/data_types.xlsx")
+          .withColumnType("data_types", "text2", ColumnType.LONG);
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("cell must be LONG type: data_types!H2");
+    }
+
+    @Test
+    void look_up_declared_types_by_resolver_of_cached_import() {
+      WorkbookCache.clear();
+      excel("DataTypes/data_types.xlsx").cached().resolver(Map.of("data_types", "other"))
+          .withColumnType("data_types", "text2", ColumnType.LONG).build();
+      var builder = excel("DataTypes/data_types.xlsx").cached()
+          .withColumnType("data_types", "text2", ColumnType.LONG);
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("cell must be LONG type: data_types!H2");
+    }
+
+    @Test
+    void throws_npe_if_type_is_null() {
+      var builder = excel("DataTypes/data_types.xlsx");
+      assertThatThrownBy(() -> builder.withColumnType("data_types", "num1", null))
+          .isInstanceOf(NullPointerException.class)
+          .hasMessage("type must not be null");
+    }
+  }
+
+  @Nested
+  class MetadataConversion {
+
+    @BeforeEach
+    void setUp() {
+      var ddl = sql("create table if not exists data_types ("
+          + "id uuid not null,"
+          + "num1 smallint,"
+          + "num2 integer,"
+          + "num3 bigint,"
+          + "num4 real,"
+          + "num5 decimal(7,3),"
+          + "text1 char(5),"
+          + "text2 varchar(100),"
+          + "date1 timestamp,"
+          + "date2 date,"
+          + "date3 time,"
+          + "bool1 boolean,"
+          + "primary key (id)"
+          + ")");
+      new DbSetup(destination, sequenceOf(ddl, truncate("data_types"))).launch();
+      changes = connection.changes().build();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 2})
+    void import_data_types(int batchSize) {
+      changes.setStartPointNow();
+      var builder = excel("DataTypes/data_types.xlsx").convertWithMetadata();
+      if (batchSize != 0) {
+        builder.batchSize(batchSize);
+      }
+      new DbSetup(destination, builder.build()).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(3)
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 1))
+          .value("num1").isEqualTo(1000)
+          .value("num2").isEqualTo(20000)
+          .value("num3").isEqualTo(3000000000L)
+          .value("num4").isEqualTo(400.75)
+          .value("num5").isEqualTo(new BigDecimal("5000.333"))
+          .value("text1").isEqualTo("aaa  ")
+          .value("text2").isEqualTo("bbb")
+          .value("date1").isEqualTo(LocalDateTime.parse("2001-02-03T10:20:30.456"))
+          .value("date2").isEqualTo(LocalDate.parse("2001-02-03"))
+          .value("date3").isEqualTo(LocalTime.parse("10:20:30"))
+          .value("bool1").isTrue()
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 2))
+          .value("num1").isNull()
+          .value("num5").isNull()
+          .value("text2").isNull()
+          .value("date1").isNull()
+          .value("date2").isNull()
+          .value("date3").isNull()
+          .value("bool1").isFalse()
+          .changeOfCreation()
+          .rowAtEndPoint()
+          .value("id").isEqualTo(new UUID(0, 3))
+          .value("num3").isEqualTo(3000000001L)
+          .value("num5").isEqualTo(new BigDecimal("5001.333"))
+          .value("text2").isEqualTo("aaabbb")
+          .value("date2").isEqualTo(LocalDate.parse("2001-02-04"))
+          .value("bool1").isTrue();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void write_numbers_to_character_columns_as_dbsetup(boolean convert) {
+      var ddl = sql("create table if not exists numbers_as_text ("
+          + "id varchar(10) primary key,"
+          + "name varchar(100)"
+          + ")");
+      new DbSetup(destination, sequenceOf(ddl, truncate("numbers_as_text"))).launch();
+      var builder = excel("Margin/no_margin.xlsx").include("table_11")
+          .resolver(Map.of("table_11", "numbers_as_text"));
+      if (convert) {
+        builder.convertWithMetadata();
+      }
+      new DbSetup(destination, builder.build()).launch();
+      assertThat(connection.table("numbers_as_text").build())
+          .column("id").hasValues("1.0")
+          .column("name").hasValues("Alice");
+    }
+  }
+
+  @Nested
+  class Tracking {
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(table_11, table_12),
+          truncate("table_11", "table_12"))).launch();
+      changes = connection.changes().build();
+    }
+
+    @Test
+    void equal_if_same_file_and_settings() {
+      var a = excel("Margin/no_margin.xlsx").resolver(Map.of("table_11", "table_11", "table_12", "table_12"))
+          .withDefaultValue("table_11", "note", "x").build();
+      var b = excel("Margin/no_margin.xlsx").resolver(Map.of("table_12", "table_12", "table_11", "table_11"))
+          .withDefaultValue("table_11", "note", "x").build();
+      assertEquals(a, b);
+      assertEquals(a.hashCode(), b.hashCode());
+      assertEquals(a.fingerprint(), b.fingerprint());
+    }
+
+    @Test
+    void not_equal_if_settings_differ() {
+      var a = excel("Margin/no_margin.xlsx").build();
+      var b = excel("Margin/no_margin.xlsx").withDefaultValue("table_11", "note", "x").build();
+      var c = excel("Margin/no_margin.xlsx").include("table_11").build();
+      var d = excel("Margin/no_margin.xlsx").chunked(10).build();
+      var e = excel("Margin/no_margin.xlsx").maxCells(100).build();
+      assertNotEquals(a, b);
+      assertNotEquals(a, c);
+      assertNotEquals(a, d);
+      assertNotEquals(a, e);
+    }
+
+    @Test
+    void compare_loaders_by_settings() {
+      var a = excel("Margin/no_margin.xlsx").loader(BulkLoader.multiRowInsert(10)).build();
+      var b = excel("Margin/no_margin.xlsx").loader(BulkLoader.multiRowInsert(10)).build();
+      var c = excel("Margin/no_margin.xlsx").loader(BulkLoader.multiRowInsert(100)).build();
+      assertEquals(a, b);
+      assertNotEquals(a, c);
+    }
+
+    @Test
+    void not_equal_if_resolvers_are_different_instances() {
+      var a = excel("Margin/no_margin.xlsx").resolver(resolver("a_")).build();
+      var b = excel("Margin/no_margin.xlsx").resolver(resolver("b_")).build();
+      assertNotEquals(a, b);
+    }
+
+    @Test
+    void not_equal_if_generators_are_different_instances() {
+      var a = excel("Margin/no_margin.xlsx")
+          .withGeneratedValue("table_11", "note", ValueGenerators.sequence().startingAt(1)).build();
+      var b = excel("Margin/no_margin.xlsx")
+          .withGeneratedValue("table_11", "note", ValueGenerators.sequence().startingAt(1000)).build();
+      assertNotEquals(a, b);
+    }
+
+    @Test
+    void equal_if_generators_are_same_instance() {
+      var generator = ValueGenerators.sequence();
+      var a = excel("Margin/no_margin.xlsx").withGeneratedValue("table_11", "note", generator).build();
+      var b = excel("Margin/no_margin.xlsx").withGeneratedValue("table_11", "note", generator).build();
+      assertEquals(a, b);
+    }
+
+    private Function<String, String> resolver(String prefix) {
+      return name -> prefix + name;
+    }
+
+    @Test
+    void not_equal_if_file_is_edited() throws IOException {
+      var path = tempDir.resolve("tracked.xlsx");
+      try (var in = getClass().getClassLoader().getResourceAsStream("Margin/no_margin.xlsx")) {
+        Files.copy(in, path);
+      }
+      var a = new Import.Builder(path.toUri().toURL()).build();
+      try (var in = getClass().getClassLoader().getResourceAsStream("Margin/top_margin.xlsx")) {
+        Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+      var b = new Import.Builder(path.toUri().toURL()).top(5).build();
+      var c = new Import.Builder(path.toUri().toURL()).top(5).build();
+      assertNotEquals(a, b);
+      assertEquals(b, c);
+    }
+
+    @Test
+    void skip_launch_after_read_only_test() {
+      var tracker = new DbSetupTracker();
+      tracker.launchIfNecessary(new DbSetup(destination, excel("Margin/no_margin.xlsx").build()));
+      tracker.skipNextLaunch();
+      changes.setStartPointNow();
+      tracker.launchIfNecessary(new DbSetup(destination, excel("Margin/no_margin.xlsx").build()));
+      assertThat(changes.setEndPointNow()).hasNumberOfChanges(0);
+    }
+  }
+
+  @Nested
+  class Incremental {
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(table_11), truncate("table_11"))).launch();
+      changes = connection.changes().build();
+      DeltaIndex.clear();
+    }
+
+    @Test
+    void replace_all_rows_at_first_execution() {
+      new DbSetup(destination, insertInto("table_11").columns("id", "name").values(99, "Zoe").build()).launch();
+      var operation = excel("Margin/no_margin.xlsx").include("table_11").incremental("table_11", "id").build();
+      new DbSetup(destination, operation).launch();
+      assertThat(connection.table("table_11").build())
+          .hasNumberOfRows(1)
+          .column("id").hasValues(1)
+          .column("name").hasValues("Alice");
+    }
+
+    @Test
+    void insert_and_delete_changed_rows() {
+      new DbSetup(destination, excel("Margin/no_margin.xlsx").include("table_11")
+          .incremental("table_11", "id").build()).launch();
+      changes.setStartPointNow();
+      new DbSetup(destination, excel("Margin/no_margin.xlsx").include("table_12")
+          .resolver(Map.of("table_12", "table_11")).incremental("table_11", "id").build()).launch();
+      var delta = changes.setEndPointNow();
+      assertThat(delta).hasNumberOfChanges(2);
+      assertThat(delta).ofCreation().hasNumberOfChanges(1);
+      assertThat(delta).ofDeletion().hasNumberOfChanges(1);
+      assertThat(connection.table("table_11").build())
+          .hasNumberOfRows(1)
+          .column("id").hasValues(2)
+          .column("name").hasValues("Bob");
+    }
+
+    @Test
+    void update_changed_rows() {
+      new DbSetup(destination, excel("WithDefaultValue/with_default_value.xlsx").include("table_11")
+          .withDefaultValue("table_11", "name", "A").incremental("table_11", "id").build()).launch();
+      assertThat(connection.table("table_11").build())
+          .column("name").hasValues("A", "A");
+      changes.setStartPointNow();
+      new DbSetup(destination, excel("WithDefaultValue/with_default_value.xlsx").include("table_11")
+          .withDefaultValue("table_11", "name", "B").incremental("table_11", "id").build()).launch();
+      var delta = changes.setEndPointNow();
+      assertThat(delta).hasNumberOfChanges(2);
+      assertThat(delta).ofModification().hasNumberOfChanges(2);
+      assertThat(connection.table("table_11").build())
+          .column("name").hasValues("B", "B");
+    }
+
+    @Test
+    void insert_default_values_of_added_rows() {
+      new DbSetup(destination, excel("Margin/no_margin.xlsx").include("table_12")
+          .resolver(Map.of("table_12", "table_11")).incremental("table_11", "id").build()).launch();
+      new DbSetup(destination, excel("WithDefaultValue/with_default_value.xlsx").include("table_11")
+          .withDefaultValue("table_11", "name", "A").incremental("table_11", "id").build()).launch();
+      assertThat(connection.table("table_11").build())
+          .hasNumberOfRows(2)
+          .column("name").hasValues("A", "A");
+    }
+
+    @Test
+    void skip_unchanged_rows() {
+      new DbSetup(destination, excel("Margin/no_margin.xlsx").include("table_11")
+          .incremental("table_11", "id").build()).launch();
+      changes.setStartPointNow();
+      new DbSetup(destination, excel("Margin/no_margin.xlsx").include("table_11")
+          .incremental("table_11", "id").build()).launch();
+      assertThat(changes.setEndPointNow()).hasNumberOfChanges(0);
+    }
+
+    @Test
+    void replace_all_rows_after_rollback() throws Exception {
+      try (var conn = destination.getConnection()) {
+        conn.setAutoCommit(false);
+        excel("Margin/no_margin.xlsx").include("table_11").incremental("table_11", "id").build()
+            .execute(conn, DefaultBinderConfiguration.INSTANCE);
+        conn.rollback();
+      }
+      new DbSetup(destination, excel("Margin/no_margin.xlsx").include("table_11")
+          .incremental("table_11", "id").build()).launch();
+      assertThat(connection.table("table_11").build())
+          .hasNumberOfRows(1)
+          .column("id").hasValues(1)
+          .column("name").hasValues("Alice");
+    }
+
+    @Test
+    void replace_all_rows_after_deleted_by_others() {
+      new DbSetup(destination, excel("Margin/no_margin.xlsx").include("table_11")
+          .incremental("table_11", "id").build()).launch();
+      new DbSetup(destination, deleteAllFrom("table_11")).launch();
+      new DbSetup(destination, excel("Margin/no_margin.xlsx").include("table_11")
+          .incremental("table_11", "id").build()).launch();
+      assertThat(connection.table("table_11").build())
+          .hasNumberOfRows(1)
+          .column("id").hasValues(1);
+    }
+
+    @Test
+    void throws_if_key_column_not_found() {
+      var builder = excel("Margin/no_margin.xlsx").include("table_11").incremental("table_11", "code");
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("key column not found: table_11.code");
+    }
+  }
+
+  @Nested
+  class Chunked {
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_13 = "create table if not exists table_13 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(table_11, table_12, table_13),
+          truncate("table_11", "table_12", "table_13"))).launch();
+      changes = connection.changes().build();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void import_in_chunks(boolean streaming) {
+      changes.setStartPointNow();
+      var metrics = new ImportMetrics();
+      var builder = excel("WithGeneratedValue/with_generated_value.xlsx")
+          .withGeneratedValue("table_11", "id", ValueGenerators.sequence().startingAt(100))
+          .withGeneratedValue("table_13", "id", ValueGenerators.sequence().startingAt(300))
+          .listener(metrics)
+          .chunked(1);
+      if (streaming) {
+        builder.streaming();
+      }
+      new DbSetup(destination, builder.build()).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(5)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(100)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(101)
+          .value("name").isEqualTo("Bob")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Charlie")
+          .changeOfCreationOnTable("table_13")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(300)
+          .value("name").isEqualTo("Dave")
+          .changeOfCreationOnTable("table_13")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(301)
+          .value("name").isEqualTo("Erin");
+      assertEquals(3, metrics.tables().size());
+      assertEquals(5, metrics.tables().stream().mapToInt(ImportMetrics.Table::rows).sum());
+      assertEquals(5, metrics.sheets().stream().mapToInt(ImportMetrics.Sheet::rows).sum());
+    }
+
+    @Test
+    void throw_reading_error_on_execution() {
+      var operation = excel("ExcelFile/invalid_sheets.xlsx").include("blank_in_header").chunked(10).build();
+      assertThatThrownBy(() -> new DbSetup(destination, operation).launch())
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("header cell must not be blank: blank_in_header!B1");
+    }
+
+    @Test
+    void throw_ise_if_combined_with_cache() {
+      var builder = excel("WithGeneratedValue/with_generated_value.xlsx").chunked(10).cached();
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void throws_iae_if_chunk_size_is_not_positive() {
+      var builder = excel("WithGeneratedValue/with_generated_value.xlsx");
+      assertThatThrownBy(() -> builder.chunked(0))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("chunkSize must be greater than 0");
+    }
+  }
+
+  @Nested
+  class Delimited {
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var csv_notes = "create table if not exists csv_notes ("
+          + "id integer primary key,"
+          + "name varchar(100),"
+          + "note varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(table_11, table_12, csv_notes),
+          truncate("table_11", "table_12", "csv_notes"))).launch();
+    }
+
+    @Test
+    void import_csv() {
+      var operation = Import.csv("Delimited/table_11.csv").build();
+      new DbSetup(destination, operation).launch();
+      assertThat(connection.table("table_11").build())
+          .hasNumberOfRows(3)
+          .column("id").hasValues(1, 2, 3)
+          .column("name").hasValues("Alice, \"A\"", null, "");
+    }
+
+    @Test
+    void import_tsv() {
+      var operation = Import.tsv("Delimited/table_12.tsv").build();
+      new DbSetup(destination, operation).launch();
+      assertThat(connection.table("table_12").build())
+          .hasNumberOfRows(1)
+          .column("id").hasValues(10)
+          .column("name").hasValues("Bob");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void import_csv_with_margin(boolean chunked) throws Exception {
+      var path = Path.of(getClass().getClassLoader().getResource("Delimited/csv_notes.csv").toURI());
+      var builder = Import.csv(path).top(1);
+      if (chunked) {
+        builder.chunked(1);
+      }
+      new DbSetup(destination, builder.build()).launch();
+      assertThat(connection.table("csv_notes").build())
+          .hasNumberOfRows(1)
+          .column("id").hasValues(30)
+          .column("name").hasValues("Carol")
+          .column("note").hasValues("multi\nline");
+    }
+
+    @Test
+    void resolve_table_name_from_file_name() {
+      var operation = Import.csv("Delimited/table_11.csv").resolver(Map.of("table_11", "table_12")).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(connection.table("table_12").build())
+          .hasNumberOfRows(3);
+    }
+
+    @Test
+    void throw_iae_if_location_has_been_not_found() {
+      assertThatThrownBy(() -> Import.csv("Delimited/not_found.csv"))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("Delimited/not_found.csv not found");
+    }
+  }
+
+  @Nested
+  class OpenDocument {
+
+    @BeforeEach
+    void setUp() {
+      var ods_items = "create table if not exists ods_items ("
+          + "id integer primary key,"
+          + "name varchar(100),"
+          + "price decimal(10, 2),"
+          + "created date,"
+          + "starts time,"
+          + "active boolean,"
+          + "total decimal(10, 2)"
+          + ")";
+      var ods_tags = "create table if not exists ods_tags ("
+          + "id integer,"
+          + "tag varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(ods_items, ods_tags), truncate("ods_items", "ods_tags"))).launch();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void import_ods(boolean chunked) {
+      // the hidden table has no corresponding table, so the import fails if it is not skipped
+      var builder = Import.ods("OpenDocument/ods_items.ods").exclude("ods_errors");
+      if (chunked) {
+        builder.chunked(1);
+      }
+      new DbSetup(destination, builder.build()).launch();
+      assertThat(connection.table("ods_items").build())
+          .hasNumberOfRows(2)
+          .row()
+          .value("id").isEqualTo(1)
+          .value("name").isEqualTo("Apple  pie\nwith cream")
+          .value("price").isEqualTo(new BigDecimal("1.50"))
+          .value("created").isEqualTo(LocalDate.parse("2001-02-03"))
+          .value("starts").isEqualTo(LocalTime.parse("10:20:30"))
+          .value("active").isTrue()
+          .value("total").isEqualTo(new BigDecimal("3.00"))
+          .row()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Banana")
+          .value("price").isNull()
+          .value("created").isNull()
+          .value("starts").isEqualTo(LocalTime.parse("00:00:00"))
+          .value("active").isFalse()
+          .value("total").isNull();
+      assertThat(connection.table("ods_tags").build())
+          .hasNumberOfRows(2)
+          .column("id").hasValues(5, 5)
+          .column("tag").hasValues("same", "same");
+    }
+
+    @Test
+    void import_ods_from_file_system() throws Exception {
+      var path = Path.of(getClass().getClassLoader().getResource("OpenDocument/ods_items.ods").toURI());
+      var operation = Import.ods(path).include("ods_tags").build();
+      new DbSetup(destination, operation).launch();
+      assertThat(connection.table("ods_tags").build())
+          .hasNumberOfRows(2);
+    }
+
+    @Test
+    void throw_dsre_if_data_row_contains_error() {
+      var builder = Import.ods("OpenDocument/ods_items.ods").include("ods_errors");
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("error value contained: ods_errors!B2");
+    }
+
+    @Test
+    void throw_iae_if_location_has_been_not_found() {
+      assertThatThrownBy(() -> Import.ods("OpenDocument/not_found.ods"))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("OpenDocument/not_found.ods not found");
+    }
+  }
+
+  @Nested
+  class CustomSource {
+
+    @BeforeEach
+    void setUp() {
+      var source_items = "create table if not exists source_items ("
+          + "id integer primary key,"
+          + "name varchar(100),"
+          + "note varchar(100)"
+          + ")";
+      var source_sparse = "create table if not exists source_sparse ("
+          + "a varchar(100),"
+          + "b integer,"
+          + "c varchar(100),"
+          + "d varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(source_items, source_sparse),
+          truncate("source_items", "source_sparse"))).launch();
+    }
+
+    @Test
+    void apply_settings_to_rows_of_custom_source() {
+      var rows = new Object[][]{
+          {"title"},
+          {null, "id", "name"},
+          {null, 1.0, "Alice"},
+          {null, 2.0, "Bob"},
+      };
+      var operation = excel("DataTypes/data_types.xlsx")
+          .source((builder, bytes) -> new ArraySource(Map.of("source_items", rows, "excluded", rows)))
+          .include("source_items")
+          .margin(1, 1)
+          .withDefaultValue("source_items", "note", "n/a")
+          .build();
+      new DbSetup(destination, operation).launch();
+      assertThat(connection.table("source_items").build())
+          .hasNumberOfRows(2)
+          .column("id").hasValues(1, 2)
+          .column("name").hasValues("Alice", "Bob")
+          .column("note").hasValues("n/a", "n/a");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 2})
+    void import_sparse_and_blank_rows(int batchSize) {
+      var rows = new Object[][]{
+          {"a", "b", "c", "d"},
+          {null, 1.0, null, "x"},
+          {},
+          {null, null},
+          {},
+          {"y"},
+          {null, null, null, null, "out of header"},
+      };
+      var builder = excel("DataTypes/data_types.xlsx")
+          .source((b, bytes) -> new ArraySource(Map.of("source_sparse", rows)));
+      if (batchSize != 0) {
+        builder.batchSize(batchSize);
+      }
+      new DbSetup(destination, builder.build()).launch();
+      assertThat(connection.table("source_sparse").build())
+          .hasNumberOfRows(6)
+          .column("a").hasValues(null, null, null, null, "y", null)
+          .column("b").hasValues(1, null, null, null, null, null)
+          .column("d").hasValues("x", null, null, null, null, null);
+    }
+  }
+
+  @Nested
+  class Limits {
+
+    final Object[][] rows = {
+        {"id", "name"},
+        {1.0, "Alice"},
+        {2.0, "Bob"},
+        {},
+        {},
+        {3.0, "Carol"},
+    };
+
+    @BeforeEach
+    void setUp() {
+      var limited_items = "create table if not exists limited_items ("
+          + "id integer,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(limited_items), truncate("limited_items"))).launch();
+    }
+
+    Import.Builder builder() {
+      return excel("DataTypes/data_types.xlsx")
+          .source((builder, bytes) -> new ArraySource(Map.of("limited_items", rows)));
+    }
+
+    @Test
+    void stop_at_blank_row() {
+      new DbSetup(destination, builder().stopAtBlankRow().build()).launch();
+      assertThat(connection.table("limited_items").build())
+          .hasNumberOfRows(2)
+          .column("id").hasValues(1, 2);
+    }
+
+    @Test
+    void stop_at_blank_row_within_max_rows() {
+      new DbSetup(destination, builder().stopAtBlankRow().maxRows(2).build()).launch();
+      assertThat(connection.table("limited_items").build())
+          .hasNumberOfRows(2);
+    }
+
+    @Test
+    void throw_dsre_if_rows_exceed_max_rows() {
+      var builder = builder().maxRows(2);
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessage("too many rows: limited_items has more than 2 rows, used range limited_items!A1:B4");
+    }
+
+    @Test
+    void throw_dsre_if_cells_exceed_budget() {
+      var builder = builder().stopAtBlankRow().maxCells(3);
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessageContaining("has more than 3 cells, used range limited_items!A1:B3");
+    }
+
+    @Test
+    void report_used_range() {
+      var metrics = new ImportMetrics();
+      builder().listener(metrics).build();
+      builder().stopAtBlankRow().listener(metrics).build();
+      var sheets = metrics.sheets();
+      assertEquals("limited_items!A1:B6", sheets.get(0).usedRange());
+      assertEquals("limited_items!A1:B3", sheets.get(1).usedRange());
+    }
+
+    @Test
+    void check_budget_of_cached_import() {
+      WorkbookCache.clear();
+      builder().stopAtBlankRow().cached().build();
+      var builder = builder().stopAtBlankRow().maxCells(3).cached();
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessageContaining("has more than 3 cells, used range limited_items!A1:B3");
+    }
+
+    @Test
+    void throw_dsre_if_bytes_exceed_budget() {
+      var builder = excel("DataTypes/data_types.xlsx").maxBytes(1);
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(DbSetupRuntimeException.class)
+          .hasMessageStartingWith("byte budget exceeded: ");
+    }
+
+    @Test
+    void throw_iae_if_max_rows_is_not_positive() {
+      assertThatThrownBy(() -> excel("DataTypes/data_types.xlsx").maxRows(0))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("maxRows must be greater than 0");
+    }
+  }
+
+  /**
+   * A source of the worksheets whose rows are given as arrays.
+   */
+  static final class ArraySource implements SpreadsheetSource {
+
+    private final Iterator<Map.Entry<String, Object[][]>> sheets;
+
+    ArraySource(Map<String, Object[][]> sheets) {
+      this.sheets = new TreeMap<>(sheets).entrySet().iterator();
+    }
+
+    @Override
+    public Sheet next() {
+      if (!sheets.hasNext()) {
+        return null;
+      }
+      var sheet = sheets.next();
+      return new Sheet() {
+
+        @Override
+        public String name() {
+          return sheet.getKey();
+        }
+
+        @Override
+        public Cursor open() {
+          return action -> {
+            var rows = sheet.getValue();
+            for (var r = 0; r < rows.length; r++) {
+              var index = r;
+              var row = new SheetRow() {
+
+                @Override
+                public int index() {
+                  return index;
+                }
+
+                @Override
+                public int lastCellNum() {
+                  return rows[index].length;
+                }
+
+                @Override
+                public Object value(int column) {
+                  return column < rows[index].length ? rows[index][column] : null;
+                }
+              };
+              if (!action.test(row)) {
+                break;
+              }
+            }
+          };
+        }
+      };
+    }
+
+    @Override
+    public boolean concurrent() {
+      return false;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  @Nested
+  class MultipleWorkbooks {
+
+    @BeforeEach
+    void setUp() {
+      var parent = "create table if not exists parent ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var child = "create table if not exists child ("
+          + "id integer primary key,"
+          + "parent_id integer references parent (id)"
+          + ")";
+      var grandchild = "create table if not exists grandchild ("
+          + "id integer primary key,"
+          + "child_id integer references child (id)"
+          + ")";
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(parent, child, grandchild, table_11),
+          truncate("table_11"), deleteAllFrom("grandchild", "child", "parent"))).launch();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void import_tables_of_all_workbooks_by_foreign_keys(int parallelism) {
+      var metrics = new ImportMetrics();
+      var operation = Import.workbooks(
+              excel("ForeignKeys/child_first.xlsx").include("child", "grandchild").streaming(),
+              excel("Margin/no_margin.xlsx").include("table_11"),
+              excel("ForeignKeys/parent_first.xlsx").include("parent"))
+          .parallelism(parallelism)
+          .orderByForeignKeys()
+          .listener(metrics)
+          .build();
+      new DbSetup(destination, operation).launch();
+      assertEquals(4, metrics.sheets().size());
+      assertEquals(4, metrics.tables().size());
+      var tables = new ArrayList<String>();
+      metrics.tables().forEach(table -> tables.add(table.name()));
+      assertTrue(tables.indexOf("parent") < tables.indexOf("child"));
+      assertTrue(tables.indexOf("child") < tables.indexOf("grandchild"));
+      assertThat(connection.table("table_11").build())
+          .column("id").hasValues(1)
+          .column("name").hasValues("Alice");
+    }
+
+    @Test
+    void throw_ise_if_builder_has_already_built() {
+      var builder = excel("Margin/no_margin.xlsx");
+      builder.build();
+      assertThatThrownBy(() -> Import.workbooks(builder).build())
+          .isInstanceOf(IllegalStateException.class)
+          .hasMessage("already built");
+    }
+
+    @Test
+    void throw_iae_if_builder_is_chunked() {
+      var builder = Import.workbooks(excel("Margin/no_margin.xlsx").chunked(10));
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void leave_builders_unclaimed_if_one_is_invalid() {
+      var valid = excel("Margin/no_margin.xlsx").include("table_11").orderByForeignKeys();
+      var builder = Import.workbooks(valid, excel("Margin/no_margin.xlsx").chunked(10));
+      assertThatThrownBy(builder::build)
+          .isInstanceOf(IllegalArgumentException.class);
+      new DbSetup(destination, valid.build()).launch();
+      assertThat(connection.table("table_11").build())
+          .column("id").hasValues(1);
+    }
+
+    @Test
+    void keep_listeners_of_builders() {
+      var metrics = new ImportMetrics();
+      var builder = excel("Margin/no_margin.xlsx").include("table_11").listener(metrics);
+      new DbSetup(destination, Import.workbooks(builder).build()).launch();
+      assertEquals(1, metrics.sheets().size());
+    }
+
+    @Test
+    void leave_settings_of_builders_as_they_are() {
+      var metrics = new ImportMetrics();
+      var builder = excel("Margin/no_margin.xlsx").include("table_11").orderByForeignKeys().listener(metrics);
+      Import.workbooks(builder).listener(new ImportMetrics()).build();
+      assertTrue(builder.orderByForeignKeys);
+      assertSame(metrics, builder.listener);
+    }
+
+    @Test
+    void throw_ise_if_same_builder_is_given_twice() {
+      var builder = excel("Margin/no_margin.xlsx");
+      assertThatThrownBy(() -> Import.workbooks(builder, builder).build())
+          .isInstanceOf(IllegalStateException.class)
+          .hasMessage("already built");
+      builder.build();
+    }
+  }
+
+  @Nested
+  class BulkLoading {
+
+    @BeforeEach
+    void setUp() {
+      var table_11 = "create table if not exists table_11 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_12 = "create table if not exists table_12 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      var table_13 = "create table if not exists table_13 ("
+          + "id integer primary key,"
+          + "name varchar(100)"
+          + ")";
+      new DbSetup(destination, sequenceOf(sql(table_11, table_12, table_13),
+          truncate("table_11", "table_12", "table_13"))).launch();
+      changes = connection.changes().build();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 100})
+    void import_with_multi_row_insert(int rowsPerStatement) {
+      changes.setStartPointNow();
+      var operation = excel("WithGeneratedValue/with_generated_value.xlsx")
+          .withGeneratedValue("table_11", "id", ValueGenerators.sequence().startingAt(100))
+          .include("table_11", "table_12")
+          .loader(BulkLoader.multiRowInsert(rowsPerStatement)).build();
+      new DbSetup(destination, operation).launch();
+      assertThat(changes.setEndPointNow())
+          .hasNumberOfChanges(3)
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(100)
+          .value("name").isEqualTo("Alice")
+          .changeOfCreationOnTable("table_11")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(101)
+          .value("name").isEqualTo("Bob")
+          .changeOfCreationOnTable("table_12")
+          .rowAtEndPoint()
+          .value("id").isEqualTo(2)
+          .value("name").isEqualTo("Charlie");
+    }
+
+    @Test
+    void write_rows_as_csv() throws IOException {
+      var rows = new BulkLoader.Rows() {
+
+        final Object[][] values = {
+            {1.0, "a\"b", null, true},
+            {0.5, "", 3000000000.0, false}
+        };
+
+        @Override
+        public int size() {
+          return values.length;
+        }
+
+        @Override
+        public Object get(int row, int column) {
+          return values[row][column];
+        }
+      };
+      var out = new StringWriter();
+      try (var reader = new PostgresCopyLoader.CsvReader(rows, 4)) {
+        reader.transferTo(out);
+      }
+      assertEquals("1,\"a\"\"b\",,true\n0.5,\"\",3000000000,false\n", out.toString());
+    }
+
+    @Test
+    void write_dates_as_local_date_times() throws IOException {
+      var dateTime = LocalDateTime.parse("2001-02-03T10:20:30.456");
+      var date = Date.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+      var out = new StringWriter();
+      try (var reader = new PostgresCopyLoader.CsvReader(rows(new Object[][] {{date}}), 1)) {
+        reader.transferTo(out);
+      }
+      assertEquals("2001-02-03 10:20:30.456\n", out.toString());
+    }
+
+    @Test
+    void quote_delimiters_in_strings() throws IOException {
+      var out = new StringWriter();
+      try (var reader = new PostgresCopyLoader.CsvReader(rows(new Object[][] {{"a,b", "c\nd"}}), 2)) {
+        reader.transferTo(out);
+      }
+      assertEquals("\"a,b\",\"c\nd\"\n", out.toString());
+    }
+
+    @Test
+    void read_across_rows_with_small_buffer() throws IOException {
+      var out = new StringBuilder();
+      var buffer = new char[3];
+      try (var reader = new PostgresCopyLoader.CsvReader(rows(new Object[][] {{1.0, "ab"}, {2.0, null}}), 2)) {
+        assertEquals(0, reader.read(buffer, 0, 0));
+        for (int n; (n = reader.read(buffer, 0, buffer.length)) != -1; ) {
+          out.append(buffer, 0, n);
+        }
+        assertEquals(-1, reader.read(buffer, 0, buffer.length));
+      }
+      assertEquals("1,\"ab\"\n2,\n", out.toString());
+    }
+
+    @Test
+    void read_nothing_if_no_rows() throws IOException {
+      try (var reader = new PostgresCopyLoader.CsvReader(rows(new Object[0][]), 2)) {
+        assertEquals(-1, reader.read());
+      }
+    }
+
+    private BulkLoader.Rows rows(Object[][] values) {
+      return new BulkLoader.Rows() {
+
+        @Override
+        public int size() {
+          return values.length;
+        }
+
+        @Override
+        public Object get(int row, int column) {
+          return values[row][column];
+        }
+      };
+    }
+
+    @Test
+    void throws_iae_if_rows_per_statement_is_not_positive() {
+      assertThatThrownBy(() -> BulkLoader.multiRowInsert(0))
+          .isInstanceOf(IllegalArgumentException.class)
+          .hasMessage("rowsPerStatement must be greater than 0");
+    }
   }
 }